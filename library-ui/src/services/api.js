@@ -12,6 +12,16 @@ const api = {
       return axios.get(`/api/books?page=${page}&size=${size}&sortBy=${sortBy}&direction=${direction}`)
     },
     
+    // 热门图书：window 为 WEEK（本周）、MONTH（本月）或 TRENDING（上升最快）
+    getPopular: (window = 'WEEK', limit = 10) => {
+      return axios.get('/api/books/popular', { params: { window, limit } })
+    },
+    
+    // 游标分页获取图书（cursor 为上一页返回的 nextCursor）
+    getByCursor: (cursor = '', size = 10, sortBy = 'createTime', direction = 'asc') => {
+      return axios.get('/api/books/cursor', { params: { cursor: cursor || undefined, size, sortBy, direction } })
+    },
+    
     // 搜索图书
     search: (keyword, page = 0, size = 10) => {
       return axios.get(`/api/books/search?keyword=${keyword}&page=${page}&size=${size}`)
@@ -70,6 +80,16 @@ const api = {
       return axios.put(`/api/users/${id}`, userData)
     },
     
+    // 启用或停用用户（管理员）
+    updateStatus: (id, status) => {
+      return axios.put(`/api/users/${id}/status`, null, { params: { status } })
+    },
+    
+    // 强制用户下线（管理员）
+    forceLogout: (id) => {
+      return axios.post(`/api/admin/users/${id}/logout`)
+    },
+    
     // 删除用户（管理员）
     delete: (id) => {
       return axios.delete(`/api/users/${id}`)
@@ -98,6 +118,21 @@ const api = {
       return axios.put(`/api/borrows/${id}/return`)
     },
     
+    // 批量批准借阅（管理员）
+    approveBatch: (ids) => {
+      return axios.put('/api/borrows/batch/approve', { ids })
+    },
+    
+    // 批量拒绝借阅（管理员）
+    rejectBatch: (ids) => {
+      return axios.put('/api/borrows/batch/reject', { ids })
+    },
+    
+    // 批量归还图书（管理员）
+    returnBatch: (ids) => {
+      return axios.put('/api/borrows/batch/return', { ids })
+    },
+    
     // 获取借阅详情
     getById: (id) => {
       return axios.get(`/api/borrows/${id}`)
@@ -108,6 +143,11 @@ const api = {
       return axios.get(`/api/borrows?page=${page}&size=${size}`)
     },
     
+    // 游标分页获取借阅记录（管理员）
+    getByCursor: (cursor = '', size = 10, sortBy = 'createTime', direction = 'desc') => {
+      return axios.get('/api/borrows/cursor', { params: { cursor: cursor || undefined, size, sortBy, direction } })
+    },
+    
     // 获取用户的借阅记录
     getByUser: (userId, page = 0, size = 10) => {
       return axios.get(`/api/borrows/user/${userId}?page=${page}&size=${size}`)
@@ -135,4 +175,10 @@ const api = {
   }
 }
 
+// 上传的封面按显示尺寸取缩略图：THUMB（120px）、SMALL（320px）、LARGE（640px），外部图片地址原样返回
+export const coverUrl = (cover, size = 'SMALL') => {
+  if (!cover || !cover.startsWith('/api/files/') || cover.includes('?')) return cover
+  return `${cover}?size=${size}`
+}
+
 export default api 
\ No newline at end of file
@@ -0,0 +1,78 @@
+import axios from 'axios'
+
+// 服务端推送（SSE）订阅。用 fetch 读取事件流，以便携带 Authorization 请求头（EventSource 不支持自定义请求头）。
+// 断线后自动重连，并通过 Last-Event-ID 让服务端补发期间错过的事件
+const RECONNECT_DELAY = 3000
+
+// 解析一个事件块，返回 { id, event, data }；只有注释行（心跳）时返回 null
+const parseBlock = (block) => {
+  let id = null
+  let event = 'message'
+  const data = []
+  for (const line of block.split('\n')) {
+    if (!line || line.startsWith(':')) continue
+    const index = line.indexOf(':')
+    const field = index < 0 ? line : line.slice(0, index)
+    const value = index < 0 ? '' : line.slice(index + 1).replace(/^ /, '')
+    if (field === 'id') id = value
+    else if (field === 'event') event = value
+    else if (field === 'data') data.push(value)
+  }
+  if (data.length === 0) return null
+  return { id, event, data: JSON.parse(data.join('\n')) }
+}
+
+// 订阅 path 上的事件流，handlers 以事件名（BORROW、AVAILABILITY、RESET）为键；返回取消订阅的函数
+export const subscribe = (path, handlers) => {
+  let lastEventId = null
+  let controller = null
+  let timer = null
+  let closed = false
+
+  const connect = async () => {
+    controller = new AbortController()
+    const headers = { Accept: 'text/event-stream' }
+    const token = localStorage.getItem('token')
+    if (token) headers.Authorization = `Bearer ${token}`
+    if (lastEventId) headers['Last-Event-ID'] = lastEventId
+
+    try {
+      const response = await fetch(`${axios.defaults.baseURL || ''}${path}`, { headers, signal: controller.signal })
+      // 未登录或无权限时不再重连
+      if (response.status === 401 || response.status === 403) return
+      if (!response.ok) throw new Error(`HTTP ${response.status}`)
+
+      const reader = response.body.getReader()
+      const decoder = new TextDecoder()
+      let buffer = ''
+      for (;;) {
+        const { done, value } = await reader.read()
+        if (done) break
+        buffer += decoder.decode(value, { stream: true }).replace(/\r\n?/g, '\n')
+        let end
+        while ((end = buffer.indexOf('\n\n')) >= 0) {
+          const message = parseBlock(buffer.slice(0, end))
+          buffer = buffer.slice(end + 2)
+          if (!message) continue
+          if (message.id) lastEventId = message.id
+          const handler = handlers[message.event]
+          if (handler) handler(message.data.data, message.data)
+        }
+      }
+    } catch (error) {
+      if (closed) return
+      console.warn('实时推送连接断开，稍后重连:', error.message)
+    }
+    if (!closed) timer = setTimeout(connect, RECONNECT_DELAY)
+  }
+
+  connect()
+
+  return () => {
+    closed = true
+    clearTimeout(timer)
+    if (controller) controller.abort()
+  }
+}
+
+export default { subscribe }
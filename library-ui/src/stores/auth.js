@@ -95,6 +95,13 @@ export const useAuthStore = defineStore('auth', {
     logout() {
       console.log('执行登出操作')
       
+      // 通知服务端吊销当前令牌，失败不影响本地登出
+      if (this.token) {
+        axios.post('/api/auth/logout', null, {
+          headers: { Authorization: `Bearer ${this.token}` }
+        }).catch(error => console.error('服务端登出失败:', error))
+      }
+      
       this.user = null
       this.token = null
       
@@ -0,0 +1,99 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.Book;
+import com.example.demo.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.LockModeType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// 多个线程同时借还同一本热门图书：单条条件UPDATE（BookRepository.adjustAvailability）只在语句执行期间持有行锁；
+// 对照组是原先先读取实体、在Java中校验再保存的方式（加行锁读取，否则并发时会丢失更新），行锁持有到事务提交。
+// 两组都在同一层比较：各自一个 TransactionTemplate 事务，不经过服务层的缓存失效、统计、推送等提交回调。
+// 每次操作借出再归还一册，两次各自提交。用 -t 改变线程数观察吞吐量随并发的变化。
+// 行锁竞争只有在多核机器和InnoDB上才会出现，单核或内存H2上的结果不能说明两种写法的差异；
+// 两组的差值要大于99.9%置信区间，单次fork的波动很大，默认用多个fork和较长的迭代
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 10, time = 5)
+@Fork(5)
+@Threads(16)
+@State(Scope.Benchmark)
+public class AvailabilityContentionBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private BookRepository bookRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+    private Long bookId;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(Map.of());
+        bookRepository = context.getBean(BookRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        // 册数足够多，借还过程中不会触及边界
+        Book book = BenchmarkApplication.book("hot", 0);
+        book.setTotalCopies(1_000_000);
+        book.setAvailableCopies(500_000);
+        bookId = bookRepository.save(book).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void conditionalUpdate() {
+        conditionalUpdate(-1);
+        conditionalUpdate(1);
+    }
+
+    @Benchmark
+    public void readModifyWrite() {
+        lockedUpdate(-1);
+        lockedUpdate(1);
+    }
+
+    private void conditionalUpdate(int change) {
+        transaction.executeWithoutResult(status -> {
+            if (bookRepository.adjustAvailability(bookId, change) == 0) {
+                throw new IllegalStateException("可用数量越界");
+            }
+        });
+    }
+
+    private void lockedUpdate(int change) {
+        transaction.executeWithoutResult(status -> {
+            Book book = entityManager.find(Book.class, bookId, LockModeType.PESSIMISTIC_WRITE);
+            int available = book.getAvailableCopies() + change;
+            if (available < 0 || available > book.getTotalCopies()) {
+                throw new IllegalStateException("可用数量越界");
+            }
+            book.setAvailableCopies(available);
+            book.setStatus(available > 0 ? Book.Status.AVAILABLE : Book.Status.BORROWED);
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.Demo2Application;
+import com.example.demo.entity.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.service.BookSearchService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 需要完整应用上下文的基准共用的启动方式：默认使用内存H2（MySQL兼容模式），
+// 通过 -Dbenchmark.db.url/-Dbenchmark.db.username/-Dbenchmark.db.password 可以换成真实的MySQL
+final class BenchmarkApplication {
+
+    static final String[] CATEGORIES = {"计算机", "文学", "历史", "经济", "艺术", "科学", "哲学", "教育"};
+    static final String[] WORDS = {"数据", "系统", "设计", "原理", "实践", "分析", "算法", "网络",
+            "历史", "文化", "经济", "管理", "艺术", "科学", "现代", "中国"};
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> overrides) throws IOException {
+        String url = System.getProperty("benchmark.db.url",
+                "jdbc:h2:mem:benchmark;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        boolean h2 = url.startsWith("jdbc:h2:");
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", url);
+        properties.put("spring.datasource.username", System.getProperty("benchmark.db.username", h2 ? "sa" : "root"));
+        properties.put("spring.datasource.password", System.getProperty("benchmark.db.password", h2 ? "" : "root"));
+        if (h2) {
+            properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+            // init.sql 是MySQL语法；实体表由Hibernate创建，汇总表由H2版的脚本创建
+            properties.put("spring.sql.init.mode", "always");
+            properties.put("spring.sql.init.schema-locations", "classpath:db/benchmark-h2.sql");
+            properties.put("spring.sql.init.continue-on-error", false);
+        }
+        properties.put("file.upload-dir", Files.createTempDirectory("benchmark-uploads").toString());
+        properties.put("file.migrate-legacy-on-startup", false);
+        properties.put("metrics.enabled", false);
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(overrides);
+
+        // 以命令行参数传入：builder.properties() 只是默认值，会被 application.properties 覆盖
+        String[] args = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(Demo2Application.class)
+                .run(args);
+    }
+
+    // 写入测试图书并重建检索索引，书名由固定词表组合，检索词的命中数量稳定
+    static List<Long> seedBooks(ConfigurableApplicationContext context, int count) {
+        BookRepository bookRepository = context.getBean(BookRepository.class);
+        String prefix = Long.toString(System.nanoTime(), 36);
+        List<Long> ids = new ArrayList<>(count);
+        List<Book> batch = new ArrayList<>(1000);
+        for (int i = 0; i < count; i++) {
+            batch.add(book(prefix, i));
+            if (batch.size() == 1000 || i == count - 1) {
+                bookRepository.saveAll(batch).forEach(book -> ids.add(book.getId()));
+                batch.clear();
+            }
+        }
+        context.getBean(BookSearchService.class).rebuild();
+        return ids;
+    }
+
+    static Book book(String prefix, int i) {
+        Book book = new Book();
+        book.setIsbn("BM" + prefix + "-" + i);
+        book.setTitle(WORDS[i % WORDS.length] + WORDS[(i / WORDS.length) % WORDS.length] + "第" + i + "卷");
+        book.setAuthor("作者" + (i % 500));
+        book.setPublisher("出版社" + (i % 50));
+        book.setCategory(CATEGORIES[i % CATEGORIES.length]);
+        book.setDescription("基准测试图书 " + i);
+        book.setStatus(Book.Status.AVAILABLE);
+        book.setTotalCopies(5);
+        book.setAvailableCopies(5);
+        return book;
+    }
+}
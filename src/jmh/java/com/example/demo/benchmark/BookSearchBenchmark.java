@@ -0,0 +1,73 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.BookSummaryDTO;
+import com.example.demo.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// BookServiceImpl.searchBooks 的两条路径：倒排索引检索后按ID取当前页，以及带排序时回退的数据库LIKE查询
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookSearchBenchmark {
+
+    // 命中数量从几条到几千条不等
+    private static final String[] KEYWORDS = {"数据", "系统设计", "算法网络", "作者123", "出版社7", "第4321卷", "不存在的书名"};
+
+    @Param({"10000", "100000"})
+    private int bookCount;
+
+    private ConfigurableApplicationContext context;
+    private BookService bookService;
+    private final Pageable indexed = PageRequest.of(0, 20);
+    private final Pageable database = PageRequest.of(0, 20, Sort.by("id"));
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkApplication.start(Map.of());
+        BenchmarkApplication.seedBooks(context, bookCount);
+        bookService = context.getBean(BookService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    private String nextKeyword() {
+        next = (next + 1) % KEYWORDS.length;
+        return KEYWORDS[next];
+    }
+
+    @Benchmark
+    public Page<BookSummaryDTO> indexedSearch() {
+        return bookService.searchBooks(nextKeyword(), indexed);
+    }
+
+    @Benchmark
+    public Page<BookSummaryDTO> databaseSearch() {
+        return bookService.searchBooks(nextKeyword(), database);
+    }
+}
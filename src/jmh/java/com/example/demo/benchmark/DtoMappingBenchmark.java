@@ -0,0 +1,86 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.BorrowDTO;
+import com.example.demo.entity.Book;
+import com.example.demo.entity.Borrow;
+import com.example.demo.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 实体转DTO的开销，按一页20条计算，与列表接口每次请求的转换量相同
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DtoMappingBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private final List<Book> books = new ArrayList<>();
+    private final List<Borrow> borrows = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        User user = new User();
+        user.setId(7L);
+        user.setUsername("reader7");
+        user.setName("基准读者");
+        user.setRole(User.Role.READER);
+        user.setStatus(User.Status.ACTIVE);
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Book book = BenchmarkApplication.book("dto", i);
+            book.setId((long) i + 1);
+            book.setPublishDate(LocalDate.of(2020, 1, 1).plusDays(i));
+            book.setCover("/api/files/" + i + ".jpg");
+            book.setLocation("A区" + i + "架");
+            book.setCreateTime(LocalDateTime.now());
+            books.add(book);
+
+            Borrow borrow = new Borrow();
+            borrow.setId((long) i + 1);
+            borrow.setUser(user);
+            borrow.setBook(book);
+            borrow.setBorrowDate(LocalDate.now());
+            borrow.setDueDate(LocalDate.now().plusDays(30));
+            borrow.setStatus(Borrow.Status.APPROVED);
+            borrow.setCreateTime(LocalDateTime.now());
+            borrows.add(borrow);
+        }
+    }
+
+    @Benchmark
+    public List<BookDTO> bookFromEntity() {
+        List<BookDTO> result = new ArrayList<>(PAGE_SIZE);
+        for (Book book : books) {
+            result.add(BookDTO.fromEntity(book));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<BorrowDTO> borrowFromEntity() {
+        List<BorrowDTO> result = new ArrayList<>(PAGE_SIZE);
+        for (Borrow borrow : borrows) {
+            result.add(BorrowDTO.fromEntity(borrow));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+// 平台线程与虚拟线程两种执行模式的对比，两个基准的结果都写入JSON：
+// concurrentClients 每次操作由几千个客户端同时请求图书列表接口，单次操作耗时即处理完这一批请求的时间（吞吐量 = 客户端数 / 耗时）；
+// requestLatency 以 SampleTime 模式让每个基准线程作为一个客户端连续发送请求，结果中的 p0.50/p0.99 即单个请求的耗时分位数。
+// 两者都用辅助计数器记录请求数和失败数（非200或超时）。
+// 内存数据库几乎没有I/O等待，用 -Dbenchmark.db.url 指向MySQL时两种模式的差异才接近生产环境
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutionModeBenchmark {
+
+    // requestLatency 的并发客户端数，超过Tomcat默认的200个请求线程
+    private static final int LATENCY_CLIENTS = 500;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"2000"})
+    private int clients;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private List<URI> uris;
+
+    // 辅助计数器：迭代开始前清零，结束时读取，按迭代累加写入结果
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Requests {
+        public long requests;
+        public long failures;
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        // 并发上限使用默认值（连接池大小的2倍）；等待名额的时间放宽到与请求超时一致，
+        // 否则虚拟线程模式的排队请求会很快返回503，与平台线程模式在Tomcat队列中等待不可比
+        context = BenchmarkApplication.start(Map.of(
+                "spring.threads.virtual.enabled", virtualThreads,
+                "execution.acquire-timeout-ms", 60_000));
+        BenchmarkApplication.seedBooks(context, 10_000);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        // 分散到不同页，避免全部命中同一条缓存结果
+        uris = IntStream.range(0, 50)
+                .mapToObj(page -> URI.create("http://localhost:" + port + "/api/books?page=" + page + "&size=20"))
+                .toList();
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = 1)
+    @Measurement(iterations = 10, batchSize = 1)
+    public void concurrentClients(Requests counters) {
+        AtomicInteger failures = new AtomicInteger();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            responses[i] = httpClient.sendAsync(request(uris.get(i % uris.size())), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null || response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    });
+        }
+        CompletableFuture.allOf(responses).exceptionally(error -> null).join();
+        counters.requests += clients;
+        counters.failures += failures.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    @Threads(LATENCY_CLIENTS)
+    public void requestLatency(Requests counters) throws InterruptedException {
+        URI uri = uris.get(ThreadLocalRandom.current().nextInt(uris.size()));
+        counters.requests++;
+        try {
+            HttpResponse<Void> response = httpClient.send(request(uri), HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                counters.failures++;
+            }
+        } catch (IOException e) {
+            counters.failures++;
+        }
+    }
+
+    private static HttpRequest request(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.config.FileStorageProperties;
+import com.example.demo.service.impl.FileStorageServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 上传文件的存储开销：边写边计算SHA-256，新内容原子移动到分片目录，重复内容只写临时文件后丢弃
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileStorageBenchmark {
+
+    // 典型封面大小
+    @Param({"65536", "524288"})
+    private int fileSize;
+
+    private Path uploadDir;
+    private FileStorageServiceImpl fileStorageService;
+    private byte[] content;
+    private MockMultipartFile duplicate;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        uploadDir = Files.createTempDirectory("benchmark-store");
+        FileStorageProperties properties = new FileStorageProperties();
+        properties.setUploadDir(uploadDir.toString());
+        fileStorageService = new FileStorageServiceImpl(properties, 10000);
+
+        content = new byte[fileSize];
+        ThreadLocalRandom.current().nextBytes(content);
+        duplicate = new MockMultipartFile("file", "cover.jpg", "image/jpeg", content.clone());
+        fileStorageService.storeFile(duplicate);
+    }
+
+    // 每次迭代后删除目录，避免新文件持续占用磁盘
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(uploadDir);
+    }
+
+    // 只改开头8个字节，内容不同但不需要每次重新生成随机数据
+    @Benchmark
+    public String storeNew() {
+        ByteBuffer.wrap(content).putLong(System.nanoTime());
+        return fileStorageService.storeFile(new MockMultipartFile("file", "cover.jpg", "image/jpeg", content));
+    }
+
+    @Benchmark
+    public String storeDuplicate() {
+        return fileStorageService.storeFile(duplicate);
+    }
+}
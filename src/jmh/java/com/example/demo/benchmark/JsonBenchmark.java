@@ -0,0 +1,77 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.BookSummaryDTO;
+import com.example.demo.dto.response.ApiResponse;
+import com.example.demo.entity.Book;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 接口响应的JSON序列化开销，ObjectMapper 与 Spring MVC 使用相同的默认配置
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private ObjectWriter writer;
+    private ApiResponse<Page<BookSummaryDTO>> pageResponse;
+    private ApiResponse<BookDTO> bookResponse;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writer();
+
+        List<BookSummaryDTO> summaries = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            summaries.add(new BookSummaryDTO((long) i + 1, "978000000" + i, "基准测试图书第" + i + "卷",
+                    "作者" + i, "出版社", LocalDate.of(2020, 1, 1), "计算机", "/api/files/" + i + ".jpg",
+                    Book.Status.AVAILABLE, 5, 3));
+        }
+        pageResponse = ApiResponse.success(new PageImpl<>(summaries, PageRequest.of(0, pageSize), 10_000));
+
+        Book book = BenchmarkApplication.book("json", 1);
+        book.setId(1L);
+        book.setPublishDate(LocalDate.of(2020, 1, 1));
+        book.setCreateTime(LocalDateTime.now());
+        bookResponse = ApiResponse.success(BookDTO.fromEntity(book));
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return writer.writeValueAsBytes(pageResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeBook() throws JsonProcessingException {
+        return writer.writeValueAsBytes(bookResponse);
+    }
+}
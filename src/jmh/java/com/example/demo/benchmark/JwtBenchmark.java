@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.entity.User;
+import com.example.demo.security.JwtUtils;
+import com.example.demo.security.UserDetailsImpl;
+import com.example.demo.service.impl.TokenRevocationServiceImpl;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// 令牌签发和每个请求的认证开销：当前的单次解析加声明构建用户主体，与原先先验证再取用户名的两次解析对比
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtUtils jwtUtils;
+    private TokenRevocationServiceImpl tokenRevocationService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenRevocationService = new TokenRevocationServiceImpl();
+        ReflectionTestUtils.setField(tokenRevocationService, "jwtExpirationMs", 86400000L);
+
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "libraryManagementSystemSecretKey2024");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86400000);
+        ReflectionTestUtils.setField(jwtUtils, "tokenRevocationService", tokenRevocationService);
+        jwtUtils.init();
+
+        user = new User();
+        user.setId(42L);
+        user.setUsername("reader42");
+        user.setName("基准读者");
+        user.setRole(User.Role.READER);
+        user.setStatus(User.Status.ACTIVE);
+        token = jwtUtils.generateJwtToken(user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtils.generateJwtToken(user);
+    }
+
+    // 当前认证过滤器的路径：解析验签一次，用户主体取自声明，再检查吊销记录
+    @Benchmark
+    public UserDetailsImpl authenticateFromClaims() {
+        Claims claims = jwtUtils.parseJwtToken(token);
+        UserDetailsImpl userDetails = UserDetailsImpl.fromClaims(claims);
+        Number issuedAt = claims.get(Claims.ISSUED_AT, Number.class);
+        if (tokenRevocationService.isRevoked(userDetails.getId(), issuedAt == null ? 0 : issuedAt.longValue(), claims.getId())) {
+            throw new IllegalStateException("令牌已吊销");
+        }
+        return userDetails;
+    }
+
+    // 原先的路径：验证和取用户名各解析验签一次（之后还要按用户名查询数据库，这里不计入）
+    @Benchmark
+    public String validateThenParseUsername() {
+        if (!jwtUtils.validateJwtToken(token)) {
+            throw new IllegalStateException("令牌无效");
+        }
+        return jwtUtils.getUserNameFromJwtToken(token);
+    }
+}
@@ -0,0 +1,14 @@
+-- 基准测试使用的内存H2库：实体表由Hibernate建表，这里只创建没有对应实体、通过JdbcTemplate读写的表。
+-- 结构与 db/init.sql 中的 borrow_rollups 一致
+CREATE TABLE IF NOT EXISTS borrow_rollups (
+    granularity ENUM('HOUR', 'DAY') NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    dimension ENUM('ALL', 'CATEGORY', 'BOOK') NOT NULL,
+    dimension_key VARCHAR(64) NOT NULL,
+    status ENUM('PENDING', 'APPROVED', 'REJECTED', 'RETURNED', 'OVERDUE') NOT NULL,
+    event_count BIGINT NOT NULL DEFAULT 0,
+    loan_days BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularity, dimension, bucket_start, dimension_key, status)
+);
+
+CREATE INDEX IF NOT EXISTS idx_borrow_rollups_key ON borrow_rollups (granularity, dimension, dimension_key, bucket_start);
@@ -0,0 +1,128 @@
+package com.example.demo.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 同时处理的请求上限。平台线程模式下由Tomcat线程池限制并发；虚拟线程模式下每个请求一个线程，
+// 没有这个上限时几千个请求会同时排队等待数据库连接，直到连接池超时。等待超时的请求直接返回503。
+// 上限按连接池大小推算，只用于访问数据库的请求；excludedPaths 中的路径（文件下载、SSE订阅）不占用名额，
+// 慢速客户端下载封面时不会把图书、借阅接口挤成503。
+// 流式导出在异步线程上边读游标边写出，整个过程占用一个数据库连接，名额保持到异步处理结束才释放
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final int maxConcurrentRequests;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+    private final List<String> excludedPaths;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConcurrencyLimitFilter(boolean enabled, int maxConcurrentRequests, long acquireTimeoutMs,
+                                  List<String> excludedPaths) {
+        this.enabled = enabled;
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(this.maxConcurrentRequests);
+        this.excludedPaths = List.copyOf(excludedPaths);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return excludedPaths.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        admitted.incrementAndGet();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // 异步请求（流式导出）在完成、出错或超时时释放；之后的异步分派不再经过这个过滤器（OncePerRequestFilter默认跳过），
+            // 不会重复获取名额。容器在首次分派返回后才触发异步事件，这里注册监听不会错过完成事件
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseListener());
+            } else {
+                permits.release();
+            }
+        }
+    }
+
+    // 超时后容器还会触发完成事件，只释放一次
+    private class ReleaseListener implements AsyncListener {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxConcurrentRequests", maxConcurrentRequests);
+        stats.put("excludedPaths", excludedPaths);
+        stats.put("inFlight", enabled ? maxConcurrentRequests - permits.availablePermits() : 0);
+        stats.put("waiting", permits.getQueueLength());
+        stats.put("admitted", admitted.get());
+        stats.put("rejected", rejected.get());
+        return stats;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+
+// 执行模式由 spring.threads.virtual.enabled 决定：开启后 Spring Boot 让Tomcat请求处理、
+// 默认异步执行器（@Async、StreamingResponseBody）和 @Scheduled 任务都运行在虚拟线程上。
+// 这里补充虚拟线程模式需要的并发上限；缩略图生成是CPU密集任务，仍使用自己的平台线程池
+@Configuration
+public class ExecutionConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionConfig.class);
+
+    // 未配置并发上限时取连接池大小的倍数：超出的请求在过滤器处排队，而不是在连接池上等到超时
+    private static final int REQUESTS_PER_CONNECTION = 2;
+
+    // 不访问数据库的请求不受并发上限限制：文件上传和下载只读写磁盘或内存缓存，
+    // SSE订阅只注册连接，之后的推送在推送线程上进行
+    private static final List<String> UNLIMITED_PATHS = List.of(
+            "/api/files/**",
+            "/api/books/*/events",
+            "/api/admin/borrows/events");
+
+    @Bean
+    public ConcurrencyLimitFilter concurrencyLimitFilter(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${execution.max-concurrent-requests:0}") int maxConcurrentRequests,
+            @Value("${execution.acquire-timeout-ms:1000}") long acquireTimeoutMs,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        if (maxConcurrentRequests <= 0) {
+            maxConcurrentRequests = connectionPoolSize * REQUESTS_PER_CONNECTION;
+        }
+        logger.info("请求执行模式: {}，并发上限: {}", virtualThreads ? "虚拟线程" : "平台线程", maxConcurrentRequests);
+        return new ConcurrencyLimitFilter(virtualThreads, maxConcurrentRequests, acquireTimeoutMs, UNLIMITED_PATHS);
+    }
+
+    // 排在安全过滤器之前，超出上限的请求不再解析令牌
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilterRegistration(
+            ConcurrencyLimitFilter concurrencyLimitFilter) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>(concurrencyLimitFilter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
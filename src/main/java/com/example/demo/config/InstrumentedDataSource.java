@@ -0,0 +1,147 @@
+package com.example.demo.config;
+
+import com.example.demo.service.MetricsService;
+import com.example.demo.util.RequestMetrics;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// 统计SQL语句数、读取行数和事务耗时的数据源包装：连接、语句和结果集都用动态代理转发给连接池返回的对象，
+// 只在 execute*、next、setAutoCommit、commit、rollback 上计数，其余调用原样转发
+public class InstrumentedDataSource extends DelegatingDataSource {
+
+    private final MetricsService metricsService;
+
+    public InstrumentedDataSource(DataSource target, MetricsService metricsService) {
+        super(target);
+        this.metricsService = metricsService;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(connection, connection.getAutoCommit()));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    // 代理对象的 equals、hashCode 按代理本身比较，其余方法转发给目标对象
+    private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+            return proxy == args[0];
+        }
+        if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+            return System.identityHashCode(proxy);
+        }
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // 事务从关闭自动提交开始计时，到提交或回滚结束；提交后仍未恢复自动提交时下一个事务立即开始
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private boolean autoCommit;
+        private long transactionStart;
+
+        ConnectionHandler(Connection target, boolean autoCommit) {
+            this.target = target;
+            this.autoCommit = autoCommit;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            Object result = InstrumentedDataSource.invoke(proxy, target, method, args);
+            switch (name) {
+                case "createStatement", "prepareStatement", "prepareCall" ->
+                        result = proxy(method.getReturnType().asSubclass(Statement.class), (Statement) result);
+                case "setAutoCommit" -> {
+                    autoCommit = (Boolean) args[0];
+                    transactionStart = autoCommit ? 0 : System.nanoTime();
+                }
+                case "commit", "rollback" -> {
+                    // 带保存点参数的 rollback 只回滚部分语句，不结束事务
+                    if (args == null && transactionStart != 0) {
+                        metricsService.recordTransaction(System.nanoTime() - transactionStart, name.equals("commit"));
+                        transactionStart = autoCommit ? 0 : System.nanoTime();
+                    }
+                }
+                case "close" -> transactionStart = 0;
+                default -> {
+                }
+            }
+            return result;
+        }
+
+        private <T extends Statement> T proxy(Class<T> type, Statement statement) {
+            return InstrumentedDataSource.proxy(type, new StatementHandler(statement));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Statement target;
+
+        StatementHandler(Statement target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                metricsService.recordStatement();
+                RequestMetrics current = RequestMetrics.current();
+                if (current != null) {
+                    current.statementExecuted();
+                }
+            }
+            Object result = InstrumentedDataSource.invoke(proxy, target, method, args);
+            if (result instanceof ResultSet resultSet) {
+                return InstrumentedDataSource.proxy(ResultSet.class, new ResultSetHandler(resultSet));
+            }
+            return result;
+        }
+    }
+
+    private class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+
+        ResultSetHandler(ResultSet target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = InstrumentedDataSource.invoke(proxy, target, method, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                metricsService.recordRow();
+                RequestMetrics current = RequestMetrics.current();
+                if (current != null) {
+                    current.rowFetched();
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.config;
+
+import com.example.demo.service.MetricsService;
+import com.example.demo.service.impl.MetricsServiceImpl;
+import com.example.demo.util.ConcurrentHistogram;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Controller;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// 性能指标采集：请求过滤器按接口统计，方法拦截器统计 com.example.demo 下的控制器和服务方法，
+// 数据源包装统计SQL语句、读取行数和事务耗时。metrics.enabled=false 时全部不注册，没有任何额外开销
+@Configuration
+@ConditionalOnProperty(name = "metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig {
+
+    private static final String BASE_PACKAGE = "com.example.demo.";
+
+    // 排在并发上限之后，被拒绝的请求不计入接口耗时
+    @Bean
+    public FilterRegistrationBean<RequestMetricsFilter> requestMetricsFilterRegistration(MetricsService metricsService) {
+        FilterRegistrationBean<RequestMetricsFilter> registration =
+                new FilterRegistrationBean<>(new RequestMetricsFilter(metricsService));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+
+    // 基础设施角色的通知器会被事务使用的自动代理创建器识别，不需要引入AspectJ；
+    // 排在事务通知之外，方法耗时包含提交时间
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor methodMetricsAdvisor(ObjectProvider<MetricsService> metricsService) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                Class<?> userClass = ClassUtils.getUserClass(targetClass);
+                return userClass.getName().startsWith(BASE_PACKAGE)
+                        && !MetricsServiceImpl.class.equals(userClass)
+                        && method.getDeclaringClass() != Object.class
+                        && (AnnotatedElementUtils.hasAnnotation(userClass, Service.class)
+                        || AnnotatedElementUtils.hasAnnotation(userClass, Controller.class));
+            }
+        };
+
+        // 方法 -> 直方图，首次调用时创建，之后每次调用只有一次查表和一次记录
+        Map<Method, ConcurrentHistogram> histograms = new ConcurrentHashMap<>();
+        MethodInterceptor interceptor = invocation -> {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                ConcurrentHistogram histogram = histograms.computeIfAbsent(invocation.getMethod(), method ->
+                        metricsService.getObject().methodHistogram(
+                                ClassUtils.getUserClass(invocation.getThis()).getSimpleName(), method.getName()));
+                histogram.record(elapsed / 1000);
+            }
+        };
+
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    @Bean
+    public static BeanPostProcessor instrumentedDataSourcePostProcessor(ObjectProvider<MetricsService> metricsService) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource(dataSource, metricsService.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
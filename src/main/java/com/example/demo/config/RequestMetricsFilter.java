@@ -0,0 +1,44 @@
+package com.example.demo.config;
+
+import com.example.demo.service.MetricsService;
+import com.example.demo.util.RequestMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// 按接口记录请求耗时、SQL语句数和读取行数；接口按路由模板归类（/api/books/{id}），
+// 没有匹配到处理器的请求（404、被安全过滤器拒绝）归入 UNMATCHED
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final String UNMATCHED = "UNMATCHED";
+
+    private final MetricsService metricsService;
+
+    public RequestMetricsFilter(MetricsService metricsService) {
+        this.metricsService = metricsService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        RequestMetrics metrics = RequestMetrics.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestMetrics.end();
+            // SSE和流式导出在首次分派后继续在其他线程写出，耗时没有意义，不记录
+            if (!request.isAsyncStarted()) {
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                String endpoint = pattern == null ? UNMATCHED : request.getMethod() + " " + pattern;
+                metricsService.recordRequest(endpoint, System.nanoTime() - start,
+                        metrics.getStatements(), metrics.getRows());
+            }
+        }
+    }
+}
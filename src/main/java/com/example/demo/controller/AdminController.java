@@ -1,28 +1,44 @@
 package com.example.demo.controller;
 
+import com.example.demo.config.ConcurrencyLimitFilter;
 import com.example.demo.dto.response.ApiResponse;
 import com.example.demo.dto.BorrowDTO;
-import com.example.demo.entity.Book;
+import com.example.demo.dto.response.RollupPoint;
 import com.example.demo.entity.Borrow;
-import com.example.demo.entity.User;
-import com.example.demo.repository.BookRepository;
-import com.example.demo.repository.BorrowRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.UserDetailsServiceImpl;
+import com.example.demo.service.BookCacheService;
+import com.example.demo.service.CirculationRollupService;
+import com.example.demo.service.FileCacheService;
+import com.example.demo.service.FileStorageService;
+import com.example.demo.service.ImageRenditionService;
+import com.example.demo.service.LiveEventService;
+import com.example.demo.service.MetricsService;
+import com.example.demo.service.OverdueService;
+import com.example.demo.service.StatsService;
+import com.example.demo.service.TokenRevocationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/admin")
@@ -32,36 +48,53 @@ public class AdminController {
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
     @Autowired
-    private BookRepository bookRepository;
+    private UserRepository userRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private BookCacheService bookCacheService;
+
+    @Autowired
+    private OverdueService overdueService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+
+    @Autowired
+    private LiveEventService liveEventService;
+
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileCacheService fileCacheService;
+
+    @Autowired
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
 
     @Autowired
-    private BorrowRepository borrowRepository;
+    private MetricsService metricsService;
 
     @GetMapping("/stats")
     public ResponseEntity<ApiResponse> getStats() {
         try {
             // 记录当前用户信息
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            logger.info("当前用户: {}, 权限: {}", authentication.getName(), authentication.getAuthorities());
-            
-            long totalBooks = bookRepository.count();
-            long totalUsers = userRepository.count();
-            long totalBorrows = borrowRepository.count();
+            logger.debug("当前用户: {}, 权限: {}", authentication.getName(), authentication.getAuthorities());
             
-            // 使用枚举值的字符串表示
-            long pendingBorrows = borrowRepository.countByStatus(Borrow.Status.PENDING.name());
-            
-            logger.info("统计数据: 图书总数={}, 用户总数={}, 借阅总数={}, 待处理借阅={}", 
-                    totalBooks, totalUsers, totalBorrows, pendingBorrows);
-
-            Map<String, Long> stats = new HashMap<>();
-            stats.put("totalBooks", totalBooks);
-            stats.put("totalUsers", totalUsers);
-            stats.put("totalBorrows", totalBorrows);
-            stats.put("pendingBorrows", pendingBorrows);
+            // 计数由各服务在状态变化时维护并定时校准，这里不访问数据库
+            Map<String, Object> stats = statsService.getStats();
 
             return ResponseEntity.ok(new ApiResponse(true, "操作成功", stats));
         } catch (Exception e) {
@@ -70,37 +103,44 @@ public class AdminController {
         }
     }
 
+    // 立即按数据库校准统计计数
+    @PostMapping("/stats/reconcile")
+    public ResponseEntity<ApiResponse> reconcileStats() {
+        statsService.reconcile();
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", statsService.getStats()));
+    }
+
+    // 流通趋势：按小时或天返回区间内的借阅事件数，dimension 为 CATEGORY/BOOK 时 key 为分类名/图书ID，不传则返回全部
+    @GetMapping("/rollups")
+    public ResponseEntity<ApiResponse> getRollups(
+            @RequestParam(defaultValue = "DAY") RollupPoint.Granularity granularity,
+            @RequestParam(defaultValue = "ALL") RollupPoint.Dimension dimension,
+            @RequestParam(required = false) String key,
+            @RequestParam(required = false) Borrow.Status status,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate to) {
+        List<RollupPoint> points = circulationRollupService.query(granularity, dimension, key, status, from, to);
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", points));
+    }
+
+    // 从借阅记录重建汇总，from 为空时全部重建
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<ApiResponse> backfillRollups(
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate from) {
+        long processed = circulationRollupService.backfill(from);
+        return ResponseEntity.ok(new ApiResponse(true, "已回填" + processed + "条借阅记录", circulationRollupService.getStats()));
+    }
+
+    @GetMapping("/rollups/stats")
+    public ResponseEntity<ApiResponse> getRollupStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", circulationRollupService.getStats()));
+    }
+
     @GetMapping("/borrows/recent")
     public ResponseEntity<ApiResponse> getRecentBorrows() {
         try {
-            List<Borrow> recentBorrows = borrowRepository.findTop10ByOrderByCreateTimeDesc();
-            
-            List<BorrowDTO> borrowDTOs = recentBorrows.stream().map(borrow -> {
-                BorrowDTO dto = new BorrowDTO();
-                dto.setId(borrow.getId());
-                dto.setStatus(borrow.getStatus().name());
-                dto.setBorrowDate(borrow.getBorrowDate());
-                dto.setDueDate(borrow.getDueDate());
-                dto.setReturnDate(borrow.getReturnDate());
-                
-                // 获取用户信息
-                User user = borrow.getUser();
-                if (user != null) {
-                    dto.setUserId(user.getId());
-                    dto.setUsername(user.getUsername());
-                    dto.setUserRealName(user.getName());
-                }
-                
-                // 获取图书信息
-                Book book = borrow.getBook();
-                if (book != null) {
-                    dto.setBookId(book.getId());
-                    dto.setBookTitle(book.getTitle());
-                    dto.setBookIsbn(book.getIsbn());
-                }
-                
-                return dto;
-            }).collect(Collectors.toList());
+            // 最近借阅由实时推送服务在内存中维护，不访问数据库
+            List<BorrowDTO> borrowDTOs = liveEventService.getRecentBorrows();
             
             return ResponseEntity.ok(new ApiResponse(true, "操作成功", borrowDTOs));
         } catch (Exception e) {
@@ -108,4 +148,80 @@ public class AdminController {
             return ResponseEntity.internalServerError().body(new ApiResponse(false, "获取最近借阅失败: " + e.getMessage(), null));
         }
     }
+
+    // 借阅状态和可借数量的实时推送，管理后台据此刷新最近借阅和统计，不再轮询
+    @GetMapping(value = "/borrows/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeBorrows(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return liveEventService.subscribeBorrows(lastEventId);
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(bookCacheService.getStats());
+        stats.put("userDetails", userDetailsService.getStats());
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", stats));
+    }
+
+    @GetMapping("/events/stats")
+    public ResponseEntity<ApiResponse> getLiveEventStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", liveEventService.getStats()));
+    }
+
+    @GetMapping("/files/stats")
+    public ResponseEntity<ApiResponse> getFileStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", fileStorageService.getStats()));
+    }
+
+    // 各接口和方法的耗时分布、每个请求的SQL语句数和读取行数、事务耗时，按累计耗时排序
+    @GetMapping("/metrics")
+    public ResponseEntity<ApiResponse> getMetrics() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", metricsService.getStats()));
+    }
+
+    // 同一份指标的 Prometheus 文本格式
+    @GetMapping(value = "/metrics/prometheus", produces = "text/plain; version=0.0.4; charset=utf-8")
+    public String scrapeMetrics() {
+        return metricsService.scrape();
+    }
+
+    // 请求并发上限的占用和拒绝次数（虚拟线程模式下生效）
+    @GetMapping("/execution/stats")
+    public ResponseEntity<ApiResponse> getExecutionStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", concurrencyLimitFilter.getStats()));
+    }
+
+    // 堆外文件缓存的命中率、占用和淘汰情况
+    @GetMapping("/files/cache/stats")
+    public ResponseEntity<ApiResponse> getFileCacheStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", fileCacheService.getStats()));
+    }
+
+    // 上传文件迁移默认不自动执行：只有开启 file.migrate-legacy-on-startup 时启动后执行一次，否则通过这个接口手动执行
+    @PostMapping("/files/migrate")
+    public ResponseEntity<ApiResponse> migrateLegacyFiles() {
+        return ResponseEntity.ok(new ApiResponse(true, "迁移完成", fileStorageService.migrateLegacyFiles()));
+    }
+
+    @GetMapping("/renditions/stats")
+    public ResponseEntity<ApiResponse> getRenditionStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", imageRenditionService.getStats()));
+    }
+
+    @GetMapping("/overdue/stats")
+    public ResponseEntity<ApiResponse> getOverdueStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", overdueService.getStats()));
+    }
+
+    // 强制下线：该用户此前签发的全部令牌立即失效
+    @PostMapping("/users/{id}/logout")
+    public ResponseEntity<ApiResponse> forceLogout(@PathVariable Long id) {
+        userRepository.findById(id).orElseThrow(() -> new RuntimeException("未找到用户ID: " + id));
+        tokenRevocationService.revokeUser(id);
+        return ResponseEntity.ok(new ApiResponse(true, "用户已强制下线", null));
+    }
+
+    @GetMapping("/tokens/stats")
+    public ResponseEntity<ApiResponse> getTokenRevocationStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "操作成功", tokenRevocationService.getStats()));
+    }
 } 
\ No newline at end of file
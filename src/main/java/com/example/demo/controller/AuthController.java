@@ -7,7 +7,10 @@ import com.example.demo.dto.response.JwtResponse;
 import com.example.demo.entity.User;
 import com.example.demo.security.JwtUtils;
 import com.example.demo.security.UserDetailsImpl;
+import com.example.demo.service.TokenRevocationService;
 import com.example.demo.service.UserService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,6 +38,9 @@ public class AuthController {
     @Autowired
     private JwtUtils jwtUtils;
     
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
         try {
@@ -89,6 +95,29 @@ public class AuthController {
         }
     }
     
+    // 退出登录：吊销当前令牌，令牌过期前不能再使用
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(HttpServletRequest request) {
+        String headerAuth = request.getHeader("Authorization");
+        Claims claims = headerAuth != null && headerAuth.startsWith("Bearer ")
+                ? jwtUtils.parseJwtToken(headerAuth.substring(7))
+                : null;
+        if (claims == null) {
+            return ResponseEntity.ok(new ApiResponse(true, "已退出登录", null));
+        }
+        
+        if (claims.getId() != null) {
+            tokenRevocationService.revokeToken(claims.getId(), claims.getExpiration().getTime() / 1000);
+        } else {
+            // 旧版本令牌没有令牌ID，只能吊销该用户的全部令牌
+            tokenRevocationService.revokeUser(userService.findByUsername(claims.getSubject()).getId());
+        }
+        logger.info("用户 {} 已退出登录", claims.getSubject());
+        
+        SecurityContextHolder.clearContext();
+        return ResponseEntity.ok(new ApiResponse(true, "已退出登录", null));
+    }
+    
     @GetMapping("/check")
     public ResponseEntity<?> checkAuthStatus() {
         try {
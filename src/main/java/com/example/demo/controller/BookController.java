@@ -1,21 +1,37 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.BookSummaryDTO;
+import com.example.demo.dto.PopularBookDTO;
 import com.example.demo.dto.request.BookRequest;
 import com.example.demo.dto.response.ApiResponse;
+import com.example.demo.dto.response.CursorPage;
+import com.example.demo.dto.response.ImportResult;
+import com.example.demo.service.BookImportService;
 import com.example.demo.service.BookService;
 import com.example.demo.service.FileStorageService;
+import com.example.demo.service.ImageRenditionService;
+import com.example.demo.service.LiveEventService;
+import com.example.demo.service.PopularBookService;
+import com.example.demo.util.ConditionalResponses;
+import com.example.demo.util.ExportWriter;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -29,6 +45,18 @@ public class BookController {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private BookImportService bookImportService;
+    
+    @Autowired
+    private PopularBookService popularBookService;
+    
+    @Autowired
+    private LiveEventService liveEventService;
+    
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+    
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<BookDTO>> addBook(@Valid @RequestBody BookRequest bookRequest) {
@@ -36,6 +64,30 @@ public class BookController {
         return ResponseEntity.ok(ApiResponse.success("图书添加成功", book));
     }
     
+    // 批量导入：请求体直接按流读取（text/csv 或 application/x-ndjson），不经过multipart缓冲
+    @PostMapping("/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ImportResult>> importBooks(
+            HttpServletRequest request,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String jobId) throws IOException {
+        
+        if (format == null) {
+            String contentType = request.getContentType();
+            format = contentType != null && contentType.contains("csv") ? "csv" : "ndjson";
+        }
+        
+        ImportResult result = bookImportService.importBooks(request.getInputStream(), format, jobId);
+        boolean success = result.getStatus() == ImportResult.Status.COMPLETED;
+        return ResponseEntity.ok(new ApiResponse<>(success, success ? "图书导入完成" : "图书导入失败: " + result.getMessage(), result));
+    }
+    
+    @GetMapping("/import/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<ImportResult>> getImportProgress(@PathVariable String jobId) {
+        return ResponseEntity.ok(ApiResponse.success(bookImportService.getImportProgress(jobId)));
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<BookDTO>> updateBook(@PathVariable Long id, @Valid @RequestBody BookRequest bookRequest) {
@@ -51,9 +103,16 @@ public class BookController {
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse<BookDTO>> getBookById(@PathVariable Long id) {
-        BookDTO book = bookService.findById(id);
-        return ResponseEntity.ok(ApiResponse.success(book));
+    public ResponseEntity<ApiResponse<BookDTO>> getBookById(@PathVariable Long id, WebRequest request) {
+        return ConditionalResponses.respond(request, bookService.getBookVersion(id), false,
+                ConditionalResponses.PUBLIC, () -> bookService.findById(id));
+    }
+    
+    // 可借数量实时推送，断线重连时按 Last-Event-ID 补发缓冲区中的事件
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeAvailability(@PathVariable Long id,
+                                            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return liveEventService.subscribeAvailability(id, lastEventId);
     }
     
     @GetMapping("/isbn/{isbn}")
@@ -63,70 +122,103 @@ public class BookController {
     }
     
     @GetMapping
-    public ResponseEntity<ApiResponse<Page<BookDTO>>> getAllBooks(
+    public ResponseEntity<ApiResponse<Page<BookSummaryDTO>>> getAllBooks(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "asc") String direction) {
+            @RequestParam(defaultValue = "asc") String direction,
+            WebRequest request) {
         
         Sort.Direction sortDirection = direction.equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
-        Page<BookDTO> books = bookService.findAllBooks(pageable);
+        return ConditionalResponses.respond(request, bookService.getBooksVersion(), true,
+                ConditionalResponses.PUBLIC, () -> bookService.findAllBooks(pageable));
+    }
+    
+    // 热门图书：WEEK/MONTH 为近7天/30天借出最多，TRENDING 为近期申请增长最快，结果来自内存统计
+    @GetMapping("/popular")
+    public ResponseEntity<ApiResponse<List<PopularBookDTO>>> getPopularBooks(
+            @RequestParam(defaultValue = "WEEK") PopularBookDTO.Window window,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(popularBookService.getPopularBooks(window, limit)));
+    }
+    
+    // 游标分页：不执行COUNT，翻页深度不影响查询耗时
+    @GetMapping("/cursor")
+    public ResponseEntity<ApiResponse<CursorPage<BookDTO>>> getBooksByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "createTime") String sortBy,
+            @RequestParam(defaultValue = "asc") String direction) {
         
+        CursorPage<BookDTO> books = bookService.findBooksByCursor(cursor, size, sortBy, direction);
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<Page<BookDTO>>> searchBooks(
+    public ResponseEntity<ApiResponse<Page<BookSummaryDTO>>> searchBooks(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<BookDTO> books = bookService.searchBooks(keyword, pageable);
+        Page<BookSummaryDTO> books = bookService.searchBooks(keyword, pageable);
         
         return ResponseEntity.ok(ApiResponse.success(books));
     }
     
     @GetMapping("/category/{category}")
-    public ResponseEntity<ApiResponse<Page<BookDTO>>> getBooksByCategory(
+    public ResponseEntity<ApiResponse<Page<BookSummaryDTO>>> getBooksByCategory(
             @PathVariable String category,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<BookDTO> books = bookService.findByCategory(category, pageable);
-        
-        return ResponseEntity.ok(ApiResponse.success(books));
+        return ConditionalResponses.respond(request, bookService.getBooksVersion(), true,
+                ConditionalResponses.PUBLIC, () -> bookService.findByCategory(category, pageable));
     }
     
     @GetMapping("/author/{author}")
-    public ResponseEntity<ApiResponse<Page<BookDTO>>> getBooksByAuthor(
+    public ResponseEntity<ApiResponse<Page<BookSummaryDTO>>> getBooksByAuthor(
             @PathVariable String author,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<BookDTO> books = bookService.findByAuthor(author, pageable);
-        
-        return ResponseEntity.ok(ApiResponse.success(books));
+        return ConditionalResponses.respond(request, bookService.getBooksVersion(), true,
+                ConditionalResponses.PUBLIC, () -> bookService.findByAuthor(author, pageable));
     }
     
+    // 可借图书不分页，从数据库游标逐行写入响应，响应结构与其他接口相同
     @GetMapping("/available")
-    public ResponseEntity<ApiResponse<List<BookDTO>>> getAvailableBooks() {
-        List<BookDTO> books = bookService.findAvailableBooks();
-        return ResponseEntity.ok(ApiResponse.success(books));
+    public ResponseEntity<StreamingResponseBody> getAvailableBooks() {
+        return ExportWriter.response("available-books", ExportWriter.JSON,
+                out -> bookService.exportAvailableBooks(out, ExportWriter.JSON));
+    }
+    
+    // 流式导出：从数据库游标逐行写入响应，format 为 csv 或 ndjson
+    @GetMapping("/available/export")
+    public ResponseEntity<StreamingResponseBody> exportAvailableBooks(@RequestParam(defaultValue = "csv") String format) {
+        return ExportWriter.response("available-books", format, out -> bookService.exportAvailableBooks(out, format));
+    }
+    
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportBooks(@RequestParam(defaultValue = "csv") String format) {
+        return ExportWriter.response("books", format, out -> bookService.exportBooks(out, format));
     }
     
     // 公开API，不需要认证
     @GetMapping("/public/search")
-    public ResponseEntity<ApiResponse<Page<BookDTO>>> publicSearchBooks(
+    public ResponseEntity<ApiResponse<Page<BookSummaryDTO>>> publicSearchBooks(
             @RequestParam String keyword,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<BookDTO> books = bookService.searchBooks(keyword, pageable);
+        Page<BookSummaryDTO> books = bookService.searchBooks(keyword, pageable);
         
         return ResponseEntity.ok(ApiResponse.success(books));
     }
@@ -135,6 +227,8 @@ public class BookController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<String>> uploadBookCover(@RequestParam("file") MultipartFile file) {
         String fileUrl = fileStorageService.storeFile(file);
+        // 缩略图在后台生成，列表页通过 ?size= 获取
+        imageRenditionService.generate(fileUrl);
         return ResponseEntity.ok(ApiResponse.success("图书封面上传成功", fileUrl));
     }
 } 
\ No newline at end of file
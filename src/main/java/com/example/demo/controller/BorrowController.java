@@ -1,11 +1,16 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.BorrowDTO;
+import com.example.demo.dto.request.BatchRequest;
 import com.example.demo.dto.request.BorrowRequest;
 import com.example.demo.dto.response.ApiResponse;
+import com.example.demo.dto.response.BatchResult;
+import com.example.demo.dto.response.CursorPage;
 import com.example.demo.entity.Borrow;
 import com.example.demo.security.UserDetailsImpl;
 import com.example.demo.service.BorrowService;
+import com.example.demo.util.ConditionalResponses;
+import com.example.demo.util.ExportWriter;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -16,6 +21,8 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -58,22 +65,57 @@ public class BorrowController {
         return ResponseEntity.ok(ApiResponse.success("图书已归还", borrow));
     }
     
+    // 批量操作：每条记录单独返回结果，部分失败不影响其余记录
+    @PutMapping("/batch/approve")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BatchResult<BorrowDTO>>> approveBorrows(@Valid @RequestBody BatchRequest batchRequest) {
+        BatchResult<BorrowDTO> result = borrowService.approveBorrows(batchRequest.getIds());
+        return ResponseEntity.ok(ApiResponse.success("批量审核完成", result));
+    }
+    
+    @PutMapping("/batch/reject")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BatchResult<BorrowDTO>>> rejectBorrows(@Valid @RequestBody BatchRequest batchRequest) {
+        BatchResult<BorrowDTO> result = borrowService.rejectBorrows(batchRequest.getIds());
+        return ResponseEntity.ok(ApiResponse.success("批量拒绝完成", result));
+    }
+    
+    @PutMapping("/batch/return")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BatchResult<BorrowDTO>>> returnBooks(@Valid @RequestBody BatchRequest batchRequest) {
+        BatchResult<BorrowDTO> result = borrowService.returnBooks(batchRequest.getIds());
+        return ResponseEntity.ok(ApiResponse.success("批量归还完成", result));
+    }
+    
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or @borrowSecurity.isOwner(#id)")
-    public ResponseEntity<ApiResponse<BorrowDTO>> getBorrowById(@PathVariable Long id) {
-        BorrowDTO borrow = borrowService.findById(id);
-        return ResponseEntity.ok(ApiResponse.success(borrow));
+    public ResponseEntity<ApiResponse<BorrowDTO>> getBorrowById(@PathVariable Long id, WebRequest request) {
+        return ConditionalResponses.respond(request, borrowService.getBorrowVersion(id), true,
+                ConditionalResponses.PRIVATE, () -> borrowService.findById(id));
     }
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Page<BorrowDTO>>> getAllBorrows(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<BorrowDTO> borrows = borrowService.findAllBorrows(pageable);
+        return ConditionalResponses.respond(request, borrowService.getBorrowsVersion(), true,
+                ConditionalResponses.PRIVATE, () -> borrowService.findAllBorrows(pageable));
+    }
+    
+    // 游标分页：不执行COUNT，翻页深度不影响查询耗时
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPage<BorrowDTO>>> getBorrowsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "createTime") String sortBy,
+            @RequestParam(defaultValue = "desc") String direction) {
         
+        CursorPage<BorrowDTO> borrows = borrowService.findBorrowsByCursor(cursor, size, sortBy, direction);
         return ResponseEntity.ok(ApiResponse.success(borrows));
     }
     
@@ -82,12 +124,12 @@ public class BorrowController {
     public ResponseEntity<ApiResponse<Page<BorrowDTO>>> getBorrowsByUser(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<BorrowDTO> borrows = borrowService.findBorrowsByUser(userId, pageable);
-        
-        return ResponseEntity.ok(ApiResponse.success(borrows));
+        return ConditionalResponses.respond(request, borrowService.getBorrowsVersion(), true,
+                ConditionalResponses.PRIVATE, () -> borrowService.findBorrowsByUser(userId, pageable));
     }
     
     @GetMapping("/book/{bookId}")
@@ -95,12 +137,12 @@ public class BorrowController {
     public ResponseEntity<ApiResponse<Page<BorrowDTO>>> getBorrowsByBook(
             @PathVariable Long bookId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<BorrowDTO> borrows = borrowService.findBorrowsByBook(bookId, pageable);
-        
-        return ResponseEntity.ok(ApiResponse.success(borrows));
+        return ConditionalResponses.respond(request, borrowService.getBorrowsVersion(), true,
+                ConditionalResponses.PRIVATE, () -> borrowService.findBorrowsByBook(bookId, pageable));
     }
     
     @GetMapping("/status/{status}")
@@ -108,19 +150,33 @@ public class BorrowController {
     public ResponseEntity<ApiResponse<Page<BorrowDTO>>> getBorrowsByStatus(
             @PathVariable Borrow.Status status,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
         
         Pageable pageable = PageRequest.of(page, size);
-        Page<BorrowDTO> borrows = borrowService.findBorrowsByStatus(status, pageable);
-        
-        return ResponseEntity.ok(ApiResponse.success(borrows));
+        return ConditionalResponses.respond(request, borrowService.getBorrowsVersion(), true,
+                ConditionalResponses.PRIVATE, () -> borrowService.findBorrowsByStatus(status, pageable));
     }
     
     @GetMapping("/overdue")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<ApiResponse<List<BorrowDTO>>> getOverdueBooks() {
-        List<BorrowDTO> borrows = borrowService.findOverdueBooks();
-        return ResponseEntity.ok(ApiResponse.success(borrows));
+    public ResponseEntity<StreamingResponseBody> getOverdueBooks() {
+        // 逾期列表不分页，从数据库游标逐行写入响应，响应结构与其他接口相同
+        return ExportWriter.response("overdue-borrows", ExportWriter.JSON,
+                out -> borrowService.exportOverdueBooks(out, ExportWriter.JSON));
+    }
+    
+    // 流式导出：从数据库游标逐行写入响应，format 为 csv 或 ndjson
+    @GetMapping("/overdue/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOverdueBooks(@RequestParam(defaultValue = "csv") String format) {
+        return ExportWriter.response("overdue-borrows", format, out -> borrowService.exportOverdueBooks(out, format));
+    }
+    
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportBorrows(@RequestParam(defaultValue = "csv") String format) {
+        return ExportWriter.response("borrows", format, out -> borrowService.exportBorrows(out, format));
     }
     
     @GetMapping("/current")
@@ -1,20 +1,22 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.StoredFile;
 import com.example.demo.dto.response.ApiResponse;
+import com.example.demo.service.FileCacheService;
 import com.example.demo.service.FileStorageService;
+import com.example.demo.service.ImageRenditionService;
+import com.example.demo.util.ConditionalResponses;
+import com.example.demo.util.FileResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/files")
@@ -23,33 +25,47 @@ public class FileController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+
+    @Autowired
+    private FileCacheService fileCacheService;
+
     @PostMapping("/upload")
     public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file) {
         String fileUrl = fileStorageService.storeFile(file);
+        imageRenditionService.generate(fileUrl);
         return ResponseEntity.ok(ApiResponse.success("文件上传成功", fileUrl));
     }
 
+    // 文件名为内容的SHA-256加扩展名，同一名称的内容永远不变，按不可变资源长期缓存；图片可以用 size=THUMB/SMALL/LARGE 取缩略图
     @GetMapping("/{fileName:.+}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable String fileName) {
-        try {
-            Path filePath = Paths.get(System.getProperty("user.dir") + "/uploads/images/" + fileName);
-            Resource resource = new UrlResource(filePath.toUri());
-            
-            if (resource.exists()) {
-                String contentType = Files.probeContentType(filePath);
-                if (contentType == null) {
-                    contentType = "application/octet-stream";
-                }
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (IOException ex) {
-            return ResponseEntity.badRequest().build();
+    public void downloadFile(@PathVariable String fileName,
+                             @RequestParam(required = false) StoredFile.Rendition size,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<StoredFile> file = fileStorageService.findFile(fileName);
+        if (file.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
         }
+        if (size == null) {
+            send(request, response, file.get(), ConditionalResponses.IMMUTABLE);
+            return;
+        }
+        
+        // 缩略图还未生成时先返回原图，但要求浏览器重新验证，生成后即可换成缩略图
+        Optional<StoredFile> rendition = imageRenditionService.findRendition(file.get(), size);
+        if (rendition.isPresent()) {
+            send(request, response, rendition.get(), ConditionalResponses.IMMUTABLE);
+        } else {
+            send(request, response, file.get(), ConditionalResponses.PUBLIC);
+        }
+    }
+
+    // 热门文件从内存缓存写出，未缓存的由sendfile从磁盘发送
+    private void send(HttpServletRequest request, HttpServletResponse response, StoredFile file,
+                      CacheControl cacheControl) throws IOException {
+        FileResponses.send(request, response, file, cacheControl,
+                (start, end, out) -> fileCacheService.write(file, start, end, out));
     }
 } 
\ No newline at end of file
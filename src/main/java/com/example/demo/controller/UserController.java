@@ -3,6 +3,7 @@ package com.example.demo.controller;
 import com.example.demo.dto.UserDTO;
 import com.example.demo.dto.request.RegisterRequest;
 import com.example.demo.dto.response.ApiResponse;
+import com.example.demo.entity.User;
 import com.example.demo.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,6 +42,13 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success("用户信息更新成功", updatedUser));
     }
     
+    @PutMapping("/{id}/status")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UserDTO>> updateUserStatus(@PathVariable Long id, @RequestParam User.Status status) {
+        UserDTO updatedUser = userService.updateUserStatus(id, status);
+        return ResponseEntity.ok(ApiResponse.success("用户状态更新成功", updatedUser));
+    }
+    
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<Void>> deleteUser(@PathVariable Long id) {
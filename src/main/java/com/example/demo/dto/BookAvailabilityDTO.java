@@ -0,0 +1,21 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookAvailabilityDTO {
+    
+    private Long bookId;
+    private Book.Status status;
+    private Integer totalCopies;
+    private Integer availableCopies;
+    
+    public static BookAvailabilityDTO fromDTO(BookDTO book) {
+        return new BookAvailabilityDTO(book.getId(), book.getStatus(), book.getTotalCopies(), book.getAvailableCopies());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.dto;
+
+import com.example.demo.entity.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// 列表视图使用的精简图书信息，不包含简介、馆藏位置和时间戳，详情通过 /api/books/{id} 获取
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSummaryDTO {
+    
+    private Long id;
+    private String isbn;
+    private String title;
+    private String author;
+    private String publisher;
+    private LocalDate publishDate;
+    private String category;
+    private String cover;
+    private Book.Status status;
+    private Integer totalCopies;
+    private Integer availableCopies;
+}
@@ -26,6 +26,15 @@ public class BorrowDTO {
     private String status;
     private LocalDateTime createTime;
     
+    // 供JPQL构造器投影使用，一条SQL取出列表需要的全部列
+    public BorrowDTO(Long id, Long userId, String username, String userRealName,
+                     Long bookId, String bookTitle, String bookIsbn,
+                     LocalDate borrowDate, LocalDate dueDate, LocalDate returnDate,
+                     Borrow.Status status, LocalDateTime createTime) {
+        this(id, userId, username, userRealName, bookId, bookTitle, bookIsbn,
+                borrowDate, dueDate, returnDate, status.name(), createTime);
+    }
+    
     public static BorrowDTO fromEntity(Borrow borrow) {
         BorrowDTO dto = new BorrowDTO();
         dto.setId(borrow.getId());
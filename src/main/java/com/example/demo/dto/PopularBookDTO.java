@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 热门图书：count 为窗口内的借阅（或申请）次数估计值，score 为排序依据
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PopularBookDTO {
+    
+    private BookDTO book;
+    private long count;
+    private double score;
+    
+    public enum Window {
+        // 近7天、近30天借出次数
+        WEEK, MONTH,
+        // 近2天借阅申请相对前28天平均水平的增量
+        TRENDING
+    }
+}
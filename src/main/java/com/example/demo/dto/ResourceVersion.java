@@ -0,0 +1,52 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// 资源的校验信息：记录数、版本号之和、最后修改时间，用于生成ETag和Last-Modified
+@Data
+public class ResourceVersion {
+    
+    private long count;
+    private long version;
+    private LocalDateTime lastModified;
+    
+    public ResourceVersion(Long count, Long version, LocalDateTime lastModified) {
+        this.count = count == null ? 0 : count;
+        this.version = version == null ? 0 : version;
+        this.lastModified = lastModified;
+    }
+    
+    // 借阅记录的响应中包含用户和图书信息，取三者中最新的修改时间
+    public ResourceVersion(Long count, Long version, LocalDateTime borrowModified,
+                           LocalDateTime bookModified, LocalDateTime userModified) {
+        this(count, version, latest(latest(borrowModified, bookModified), userModified));
+    }
+    
+    public boolean exists() {
+        return count > 0;
+    }
+    
+    // 强校验用于单个资源，列表和包含关联数据的响应使用弱校验
+    public String toETag(boolean weak) {
+        long modified = lastModified == null ? 0 : toEpochMilli(lastModified);
+        return (weak ? "W/" : "") + "\"" + count + "-" + version + "-" + Long.toHexString(modified) + "\"";
+    }
+    
+    public long toLastModified() {
+        return lastModified == null ? -1 : toEpochMilli(lastModified);
+    }
+    
+    private static long toEpochMilli(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+}
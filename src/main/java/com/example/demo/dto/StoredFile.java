@@ -0,0 +1,40 @@
+package com.example.demo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.http.MediaType;
+
+import java.nio.file.Path;
+
+// 已上传文件的元数据；文件名按内容寻址（SHA-256加扩展名），同一名称的内容不会变化，元数据可以长期缓存
+@Data
+@AllArgsConstructor
+public class StoredFile {
+    
+    private String fileName;
+    private Path path;
+    private long size;
+    private long lastModified;
+    private MediaType contentType;
+    
+    public String toETag() {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+    
+    // 图片的缩略尺寸，按宽度等比缩放，原图不超过该宽度时保持原尺寸
+    public enum Rendition {
+        THUMB(120),
+        SMALL(320),
+        LARGE(640);
+        
+        private final int width;
+        
+        Rendition(int width) {
+            this.width = width;
+        }
+        
+        public int getWidth() {
+            return width;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.demo.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchRequest {
+    
+    @NotEmpty(message = "ID列表不能为空")
+    @Size(max = 1000, message = "单次最多处理1000条记录")
+    private List<Long> ids;
+}
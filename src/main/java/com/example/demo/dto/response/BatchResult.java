@@ -0,0 +1,38 @@
+package com.example.demo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 批量操作结果，按请求中的ID顺序返回每一条的处理结果
+@Data
+@NoArgsConstructor
+public class BatchResult<T> {
+    
+    private int succeeded;
+    private int failed;
+    private List<Item<T>> items = new ArrayList<>();
+    
+    public void success(Long id, T data) {
+        items.add(new Item<>(id, true, null, data));
+        succeeded++;
+    }
+    
+    public void failure(Long id, String message) {
+        items.add(new Item<>(id, false, message, null));
+        failed++;
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item<T> {
+        private Long id;
+        private boolean success;
+        private String message;
+        private T data;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.demo.dto.response;
+
+import com.example.demo.util.KeysetCursor;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    // rows 需要比 size 多查一条，用于判断是否还有下一页，不做 COUNT 查询
+    public static <E, T> CursorPage<T> of(List<E> rows, int size, KeysetCursor cursor, Function<E, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursor.next(page.get(page.size() - 1)) : null;
+
+        List<T> content = page.stream().map(mapper).collect(Collectors.toList());
+        return new CursorPage<>(content, content.size(), hasNext, nextCursor);
+    }
+}
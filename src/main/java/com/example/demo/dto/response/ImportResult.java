@@ -0,0 +1,44 @@
+package com.example.demo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Data
+@NoArgsConstructor
+public class ImportResult {
+    
+    private String jobId;
+    private volatile Status status;
+    private volatile long processed;
+    private volatile long imported;
+    private volatile long duplicates;
+    private volatile long failed;
+    private String message;
+    private List<RowError> errors = new CopyOnWriteArrayList<>();
+    private LocalDateTime startTime;
+    private volatile LocalDateTime endTime;
+    
+    public ImportResult(String jobId) {
+        this.jobId = jobId;
+        this.status = Status.RUNNING;
+        this.startTime = LocalDateTime.now();
+    }
+    
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String isbn;
+        private String message;
+    }
+}
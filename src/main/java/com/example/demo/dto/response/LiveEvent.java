@@ -0,0 +1,28 @@
+package com.example.demo.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// 实时推送的事件，id 单调递增（从进程启动时间起算，重启后不会与之前的ID重复），客户端重连时通过 Last-Event-ID 补发错过的事件
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveEvent {
+    
+    private long id;
+    private Type type;
+    private LocalDateTime time;
+    private Object data;
+    
+    public enum Type {
+        // 借阅状态变化，data 为 BorrowDTO
+        BORROW,
+        // 图书可借数量变化，data 为 BookAvailabilityDTO
+        AVAILABILITY,
+        // 客户端错过的事件已不在缓冲区中，需要重新加载完整数据
+        RESET
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo.dto.response;
+
+import com.example.demo.entity.Borrow;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+public class RollupPoint {
+    
+    // 汇总维度为 ALL 时的维度值
+    public static final String ALL_KEY = "*";
+    
+    private LocalDateTime bucket;
+    private String key;
+    private String status;
+    private long count;
+    private long loanDays;
+    // 仅归还事件有借阅天数，其余为null
+    private Double averageLoanDays;
+    
+    public RollupPoint(LocalDateTime bucket, String key, String status, long count, long loanDays) {
+        this.bucket = bucket;
+        this.key = key;
+        this.status = status;
+        this.count = count;
+        this.loanDays = loanDays;
+        this.averageLoanDays = Borrow.Status.RETURNED.name().equals(status) && count > 0 ? (double) loanDays / count : null;
+    }
+    
+    public enum Granularity {
+        HOUR, DAY
+    }
+    
+    public enum Dimension {
+        ALL, CATEGORY, BOOK
+    }
+}
@@ -65,6 +65,10 @@ public class Book {
     @UpdateTimestamp
     private LocalDateTime updateTime;
 
+    // 乐观锁版本号，每次更新递增，同时用于生成ETag
+    @Version
+    private Long version;
+
     public enum Status {
         AVAILABLE, BORROWED
     }
@@ -0,0 +1,45 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "token_revocations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenRevocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    // TOKEN 为令牌ID，USER 为用户ID
+    @Column(nullable = false)
+    private Long subject;
+
+    // USER 类型：签发时间早于该时间（秒）的令牌全部失效
+    @Column
+    private Long notBefore;
+
+    // 超过该时间后相关令牌都已自然过期，记录可以清理
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createTime;
+
+    public enum Type {
+        TOKEN, USER
+    }
+}
@@ -1,34 +1,136 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.BookSummaryDTO;
+import com.example.demo.dto.ResourceVersion;
 import com.example.demo.entity.Book;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
     
+    String BOOK_DTO_SELECT = "SELECT new com.example.demo.dto.BookDTO(" +
+            "b.id, b.isbn, b.title, b.author, b.publisher, b.publishDate, b.category, b.description, " +
+            "b.cover, b.location, b.status, b.totalCopies, b.availableCopies, b.createTime) FROM Book b ";
+    
+    // 列表查询只取列表视图需要的列，不读取简介等大字段
+    String BOOK_SUMMARY_SELECT = "SELECT new com.example.demo.dto.BookSummaryDTO(" +
+            "b.id, b.isbn, b.title, b.author, b.publisher, b.publishDate, b.category, " +
+            "b.cover, b.status, b.totalCopies, b.availableCopies) FROM Book b ";
+    
+    // 模糊匹配的参数由调用方按 LIKE_ESCAPE 转义 % _ \，按字面子串匹配
+    String LIKE_ESCAPE = " ESCAPE '\\'";
+    
+    String SEARCH_CONDITION = "WHERE " +
+            "LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%'))" + LIKE_ESCAPE + " OR " +
+            "LOWER(b.author) LIKE LOWER(CONCAT('%', :keyword, '%'))" + LIKE_ESCAPE + " OR " +
+            "LOWER(b.publisher) LIKE LOWER(CONCAT('%', :keyword, '%'))" + LIKE_ESCAPE + " OR " +
+            "LOWER(b.isbn) LIKE LOWER(CONCAT('%', :keyword, '%'))" + LIKE_ESCAPE;
+    
+    String AUTHOR_CONDITION = "WHERE LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))" + LIKE_ESCAPE;
+    
+    // 单条语句调整可用数量，边界校验放在WHERE中，先按旧值计算状态再更新数量
+    String ADJUST_AVAILABILITY_SQL = "UPDATE books SET " +
+            "status = CASE WHEN available_copies + :change > 0 THEN 'AVAILABLE' ELSE 'BORROWED' END, " +
+            "available_copies = available_copies + :change, " +
+            "update_time = NOW(), " +
+            "version = version + 1 " +
+            "WHERE id = :id AND available_copies + :change >= 0 AND available_copies + :change <= total_copies";
+    
+    // MySQL驱动在fetchSize为Integer.MIN_VALUE时逐行流式读取结果集
+    String STREAMING_FETCH_SIZE = "" + Integer.MIN_VALUE;
+    
     Optional<Book> findByIsbn(String isbn);
     
     boolean existsByIsbn(String isbn);
     
+    // 批量导入时一次性判断一批ISBN是否已存在
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns")
+    List<String> findExistingIsbns(Collection<String> isbns);
+    
+    List<Book> findByIsbnIn(Collection<String> isbns);
+    
     Page<Book> findByTitleContainingIgnoreCase(String title, Pageable pageable);
     
     Page<Book> findByAuthorContainingIgnoreCase(String author, Pageable pageable);
     
     Page<Book> findByCategory(String category, Pageable pageable);
     
-    @Query("SELECT b FROM Book b WHERE " +
-            "LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(b.author) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(b.publisher) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(b.isbn) LIKE LOWER(CONCAT('%', :keyword, '%'))")
+    @Query("SELECT b FROM Book b " + SEARCH_CONDITION)
     Page<Book> searchBooks(String keyword, Pageable pageable);
     
+    @Query(value = BOOK_SUMMARY_SELECT,
+            countQuery = "SELECT COUNT(b) FROM Book b")
+    Page<BookSummaryDTO> findAllBookSummaries(Pageable pageable);
+    
+    @Query(value = BOOK_SUMMARY_SELECT + SEARCH_CONDITION,
+            countQuery = "SELECT COUNT(b) FROM Book b " + SEARCH_CONDITION)
+    Page<BookSummaryDTO> searchBookSummaries(String keyword, Pageable pageable);
+    
+    @Query(value = BOOK_SUMMARY_SELECT + "WHERE b.category = :category",
+            countQuery = "SELECT COUNT(b) FROM Book b WHERE b.category = :category")
+    Page<BookSummaryDTO> findBookSummariesByCategory(String category, Pageable pageable);
+    
+    @Query(value = BOOK_SUMMARY_SELECT + AUTHOR_CONDITION,
+            countQuery = "SELECT COUNT(b) FROM Book b " + AUTHOR_CONDITION)
+    Page<BookSummaryDTO> findBookSummariesByAuthor(String author, Pageable pageable);
+    
+    // 检索索引命中后按ID加载当前页
+    @Query(BOOK_SUMMARY_SELECT + "WHERE b.id IN :ids")
+    List<BookSummaryDTO> findBookSummariesByIdIn(Collection<Long> ids);
+    
     List<Book> findByStatus(Book.Status status);
+    
+    // 统计计数器校准使用，返回 [分类, 图书数, 总册数, 可借册数]
+    @Query("SELECT b.category, COUNT(b), COALESCE(SUM(b.totalCopies), 0), COALESCE(SUM(b.availableCopies), 0) " +
+            "FROM Book b GROUP BY b.category")
+    List<Object[]> countGroupByCategory();
+    
+    // 流式查询返回DTO投影，不进入持久化上下文，需在事务内消费并关闭
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query(BOOK_DTO_SELECT + "ORDER BY b.id")
+    Stream<BookDTO> streamAllBookDTOs();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE))
+    @Query(BOOK_DTO_SELECT + "WHERE b.status = :status ORDER BY b.id")
+    Stream<BookDTO> streamBookDTOsByStatus(Book.Status status);
+    
+    @Modifying
+    @Query(value = ADJUST_AVAILABILITY_SQL, nativeQuery = true)
+    int adjustAvailability(Long id, int change);
+    
+    // 调整可借数量的事务内读取分类，只查一列，不经过图书缓存，未提交的数量不会被缓存
+    @Query("SELECT b.category FROM Book b WHERE b.id = :id")
+    Optional<String> findCategoryById(Long id);
+    
+    // 返回 [图书ID, 分类]
+    @Query("SELECT b.id, b.category FROM Book b WHERE b.id IN :ids")
+    List<Object[]> findIdAndCategoryByIdIn(Collection<Long> ids);
+    
+    @Query("SELECT b.id, b.cover FROM Book b WHERE b.cover LIKE :pattern")
+    List<Object[]> findIdAndCoverByCoverLike(String pattern);
+    
+    // 上传文件迁移后替换封面地址，同时递增版本使条件GET的校验值失效
+    @Modifying
+    @Query(value = "UPDATE books SET cover = REPLACE(cover, :oldUrl, :newUrl), " +
+            "update_time = NOW(), version = version + 1 WHERE id IN :ids", nativeQuery = true)
+    int replaceCover(Collection<Long> ids, String oldUrl, String newUrl);
+    
+    // 列表校验信息的数据库核对：记录数和最后修改时间，由后台定时执行，不在请求路径上。
+    // MAX走 update_time 索引只读一端，COUNT扫描最窄的二级索引，不读取数据行
+    @Query("SELECT new com.example.demo.dto.ResourceVersion(COUNT(b), 0L, MAX(b.updateTime)) FROM Book b")
+    ResourceVersion findTableVersion();
 } 
\ No newline at end of file
@@ -1,21 +1,42 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.BorrowDTO;
+import com.example.demo.dto.ResourceVersion;
 import com.example.demo.entity.Book;
 import com.example.demo.entity.Borrow;
 import com.example.demo.entity.User;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BorrowRepository extends JpaRepository<Borrow, Long> {
     
+    String BORROW_DTO_SELECT = "SELECT new com.example.demo.dto.BorrowDTO(" +
+            "b.id, u.id, u.username, u.name, bk.id, bk.title, bk.isbn, " +
+            "b.borrowDate, b.dueDate, b.returnDate, b.status, b.createTime) " +
+            "FROM Borrow b JOIN b.user u JOIN b.book bk ";
+    
+    // 单条借阅的条件GET校验信息，借阅响应包含图书和用户字段，版本和修改时间一并计入
+    String BORROW_VERSION_SELECT = "SELECT new com.example.demo.dto.ResourceVersion(" +
+            "COUNT(b), SUM(b.version + bk.version), MAX(b.updateTime), MAX(bk.updateTime), MAX(u.updateTime)) " +
+            "FROM Borrow b JOIN b.user u JOIN b.book bk ";
+    
     List<Borrow> findByUser(User user);
     
     Page<Borrow> findByUser(User user, Pageable pageable);
@@ -41,9 +62,132 @@ public interface BorrowRepository extends JpaRepository<Borrow, Long> {
     
     List<Borrow> findByStatus(String status);
     
-    long countByStatus(String status);
+    long countByStatus(Borrow.Status status);
     
     List<Borrow> findByStatusAndDueDateBeforeAndReturnDateIsNull(String status, Date currentDate);
     
     List<Borrow> findTop10ByOrderByCreateTimeDesc();
+    
+    // 以下投影查询只取BorrowDTO需要的列，用户和图书通过JOIN一次取出，避免逐行加载关联
+    @Query(value = BORROW_DTO_SELECT,
+            countQuery = "SELECT COUNT(b) FROM Borrow b")
+    Page<BorrowDTO> findAllBorrowDTOs(Pageable pageable);
+    
+    @Query(value = BORROW_DTO_SELECT + "WHERE b.status = :status",
+            countQuery = "SELECT COUNT(b) FROM Borrow b WHERE b.status = :status")
+    Page<BorrowDTO> findBorrowDTOsByStatus(Borrow.Status status, Pageable pageable);
+    
+    @Query(value = BORROW_DTO_SELECT + "WHERE u.id = :userId",
+            countQuery = "SELECT COUNT(b) FROM Borrow b WHERE b.user.id = :userId")
+    Page<BorrowDTO> findBorrowDTOsByUserId(Long userId, Pageable pageable);
+    
+    @Query(value = BORROW_DTO_SELECT + "WHERE bk.id = :bookId",
+            countQuery = "SELECT COUNT(b) FROM Borrow b WHERE b.book.id = :bookId")
+    Page<BorrowDTO> findBorrowDTOsByBookId(Long bookId, Pageable pageable);
+    
+    @Query(BORROW_DTO_SELECT + "WHERE u.id = :userId AND b.status = :status")
+    List<BorrowDTO> findBorrowDTOsByUserIdAndStatus(Long userId, Borrow.Status status);
+    
+    @Query(BORROW_DTO_SELECT + "WHERE u.id = :userId AND b.status IN :statuses")
+    List<BorrowDTO> findBorrowDTOsByUserIdAndStatusIn(Long userId, Collection<Borrow.Status> statuses);
+    
+    @Query(BORROW_DTO_SELECT + "WHERE b.id IN :ids AND b.status = :status")
+    List<BorrowDTO> findBorrowDTOsByIdInAndStatus(Collection<Long> ids, Borrow.Status status);
+    
+    @Query(BORROW_DTO_SELECT + "ORDER BY b.createTime DESC")
+    List<BorrowDTO> findRecentBorrowDTOs(Pageable pageable);
+    
+    @Query(BORROW_VERSION_SELECT + "WHERE b.id = :id")
+    ResourceVersion findVersionById(Long id);
+    
+    // 流式查询，MySQL驱动逐行读取结果集，需在事务内消费并关闭
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = BookRepository.STREAMING_FETCH_SIZE))
+    @Query(BORROW_DTO_SELECT + "ORDER BY b.id")
+    Stream<BorrowDTO> streamAllBorrowDTOs();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = BookRepository.STREAMING_FETCH_SIZE))
+    @Query(BORROW_DTO_SELECT + "WHERE b.status = 'OVERDUE' ORDER BY b.dueDate")
+    Stream<BorrowDTO> streamOverdueBorrowDTOs();
+    
+    // 启动时重建逾期索引，只取ID和应还日期
+    @Query("SELECT b.id, b.dueDate FROM Borrow b WHERE b.status = :status")
+    List<Object[]> findIdAndDueDateByStatus(Borrow.Status status);
+    
+    // 统计计数器校准及级联删除时使用，返回 [状态, 数量]
+    @Query("SELECT b.status, COUNT(b) FROM Borrow b GROUP BY b.status")
+    List<Object[]> countGroupByStatus();
+    
+    @Query("SELECT b.status, COUNT(b) FROM Borrow b WHERE b.user.id = :userId GROUP BY b.status")
+    List<Object[]> countByUserIdGroupByStatus(Long userId);
+    
+    @Query("SELECT b.status, COUNT(b) FROM Borrow b WHERE b.book.id = :bookId GROUP BY b.status")
+    List<Object[]> countByBookIdGroupByStatus(Long bookId);
+    
+    // 流通汇总回填按ID分段读取，返回 [借阅ID, 图书ID, 分类, 状态, 创建时间, 更新时间, 借阅日期, 应还日期, 归还日期]
+    @Query("SELECT b.id, bk.id, bk.category, b.status, b.createTime, b.updateTime, b.borrowDate, b.dueDate, b.returnDate " +
+            "FROM Borrow b JOIN b.book bk WHERE b.id > :afterId AND b.updateTime >= :since ORDER BY b.id")
+    List<Object[]> findRollupSources(Long afterId, LocalDateTime since, Pageable pageable);
+    
+    // 热门图书统计启动时重建，按图书和日期汇总，返回 [图书ID, 日期, 次数]
+    @Query("SELECT b.book.id, CAST(b.createTime AS LocalDate), COUNT(b) FROM Borrow b " +
+            "WHERE b.createTime >= :since GROUP BY b.book.id, CAST(b.createTime AS LocalDate)")
+    List<Object[]> countRequestsByBookAndDateSince(LocalDateTime since);
+    
+    // 借出按批准日期统计：仍为APPROVED的记录更新时间即批准时间；已逾期或归还的记录更新时间已变化，
+    // 按借阅日期近似（与流通汇总回填相同）
+    @Query("SELECT b.book.id, CAST(b.updateTime AS LocalDate), COUNT(b) FROM Borrow b " +
+            "WHERE b.status = 'APPROVED' AND b.updateTime >= :since GROUP BY b.book.id, CAST(b.updateTime AS LocalDate)")
+    List<Object[]> countApprovedByBookAndDateSince(LocalDateTime since);
+    
+    @Query("SELECT b.book.id, b.borrowDate, COUNT(b) FROM Borrow b " +
+            "WHERE b.borrowDate >= :since AND b.status IN :statuses GROUP BY b.book.id, b.borrowDate")
+    List<Object[]> countBorrowsByBookAndDateSince(LocalDate since, Collection<Borrow.Status> statuses);
+    
+    // 逾期标记先锁定本批中仍为 status 的借阅，之后只更新、上报这些记录；
+    // 上一次已提交但未来得及移出索引的记录不再为 APPROVED，重试时不会重复计数
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b.id FROM Borrow b WHERE b.id IN :ids AND b.status = :status")
+    List<Long> findIdsByIdInAndStatusForUpdate(Collection<Long> ids, Borrow.Status status);
+    
+    // 逾期标记后取出本批实际变更的借阅所属图书，返回 [图书ID, 分类]
+    @Query("SELECT bk.id, bk.category FROM Borrow b JOIN b.book bk WHERE b.id IN :ids AND b.status = :status")
+    List<Object[]> findBookIdAndCategoryByIdInAndStatus(Collection<Long> ids, Borrow.Status status);
+    
+    // 条件状态迁移：只有当前状态仍在 from 中时才会更新，并发操作同一条记录只有一个成功
+    @Modifying
+    @Query("UPDATE Borrow b SET b.status = :to, b.updateTime = CURRENT_TIMESTAMP, b.version = b.version + 1 " +
+            "WHERE b.id = :id AND b.status IN :from")
+    int updateStatus(Long id, Collection<Borrow.Status> from, Borrow.Status to);
+    
+    @Modifying
+    @Query("UPDATE Borrow b SET b.status = :to, b.returnDate = :returnDate, b.updateTime = CURRENT_TIMESTAMP, " +
+            "b.version = b.version + 1 " +
+            "WHERE b.id = :id AND b.status IN :from")
+    int updateStatusAndReturnDate(Long id, Collection<Borrow.Status> from, Borrow.Status to, LocalDate returnDate);
+    
+    // 批量处理时一次加载并锁定借阅记录及其图书，保证按库存分配的结果在提交前不被并发修改。
+    // 用户不在加锁查询中JOIN，避免FOR UPDATE锁住用户行；调用前先用 findUsersByBorrowIdIn 加载用户
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Borrow b JOIN FETCH b.book WHERE b.id IN :ids ORDER BY b.id")
+    List<Borrow> findAllByIdInForUpdate(Collection<Long> ids);
+    
+    // 不加锁读取借阅所属用户，放入持久化上下文后，加锁查询中的用户关联不再逐条查询
+    @Query("SELECT DISTINCT u FROM Borrow b JOIN b.user u WHERE b.id IN :ids")
+    List<User> findUsersByBorrowIdIn(Collection<Long> ids);
+    
+    @Modifying
+    @Query("UPDATE Borrow b SET b.status = :to, b.updateTime = CURRENT_TIMESTAMP, b.version = b.version + 1 " +
+            "WHERE b.id IN :ids AND b.status IN :from")
+    int updateStatusByIdIn(Collection<Long> ids, Collection<Borrow.Status> from, Borrow.Status to);
+    
+    @Modifying
+    @Query("UPDATE Borrow b SET b.status = :to, b.returnDate = :returnDate, b.updateTime = CURRENT_TIMESTAMP, " +
+            "b.version = b.version + 1 " +
+            "WHERE b.id IN :ids AND b.status IN :from")
+    int updateStatusAndReturnDateByIdIn(Collection<Long> ids, Collection<Borrow.Status> from, Borrow.Status to,
+                                        LocalDate returnDate);
+    
+    // 列表校验信息的数据库核对，只统计借阅表本身；图书和用户的修改时间分别查询，避免定时整表JOIN
+    @Query("SELECT new com.example.demo.dto.ResourceVersion(COUNT(b), 0L, MAX(b.updateTime)) FROM Borrow b")
+    ResourceVersion findTableVersion();
 } 
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.example.demo.repository;
+
+import com.example.demo.util.KeysetCursor;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class KeysetQueryExecutor {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // 按 (排序字段, id) 做 seek 查询，代替 OFFSET 分页，不执行 COUNT
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> List<T> seek(Class<T> type, KeysetCursor cursor, int limit, String... fetches) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+
+        // 关联对象在同一条SQL中抓取，避免逐行加载
+        for (String fetch : fetches) {
+            root.fetch(fetch);
+        }
+
+        Expression<Long> id = root.get("id");
+        Expression key = root.get(cursor.getSortKey());
+        boolean ascending = cursor.isAscending();
+        boolean idOnly = "id".equals(cursor.getSortKey());
+
+        if (!cursor.isFirstPage()) {
+            Predicate afterId = ascending ? cb.greaterThan(id, cursor.getLastId()) : cb.lessThan(id, cursor.getLastId());
+            if (idOnly) {
+                query.where(afterId);
+            } else {
+                Comparable value = cursor.getLastValue();
+                Predicate afterKey = ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+                query.where(cb.or(afterKey, cb.and(cb.equal(key, value), afterId)));
+            }
+        }
+
+        if (idOnly) {
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        } else {
+            query.orderBy(ascending ? cb.asc(key) : cb.desc(key), ascending ? cb.asc(id) : cb.desc(id));
+        }
+
+        return entityManager.createQuery(query.select(root))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -2,8 +2,10 @@ package com.example.demo.repository;
 
 import com.example.demo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +16,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
     
     Optional<User> findByEmail(String email);
+    
+    // 借阅列表包含用户姓名，列表校验信息的数据库核对需要用户表的最后修改时间
+    @Query("SELECT MAX(u.updateTime) FROM User u")
+    LocalDateTime findLastUpdateTime();
 } 
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.demo.security;
 
 import com.example.demo.entity.User;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.jsonwebtoken.Claims;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.springframework.security.core.GrantedAuthority;
@@ -28,29 +29,48 @@ public class UserDetailsImpl implements UserDetails {
     private String email;
     private Collection<? extends GrantedAuthority> authorities;
     
+    // 停用的用户不能登录
+    private boolean enabled;
+    
     public static UserDetailsImpl build(User user) {
         String roleString = "ROLE_" + user.getRole().name();
-        System.out.println("用户 " + user.getUsername() + " 的角色: " + roleString);
-        
         List<GrantedAuthority> authorities = Collections.singletonList(
                 new SimpleGrantedAuthority(roleString)
         );
         
-        System.out.println("用户 " + user.getUsername() + " 的权限列表: " + authorities);
-        
         return new UserDetailsImpl(
                 user.getId(),
                 user.getUsername(),
                 user.getName(),
                 user.getPassword(),
                 user.getEmail(),
-                authorities
+                authorities,
+                user.getStatus() != User.Status.INACTIVE
         );
     }
     
+    // 根据令牌中的声明构建用户主体，旧版本令牌缺少声明时返回null
+    public static UserDetailsImpl fromClaims(Claims claims) {
+        Number userId = claims.get(JwtUtils.CLAIM_USER_ID, Number.class);
+        String role = claims.get(JwtUtils.CLAIM_ROLE, String.class);
+        if (userId == null || role == null) {
+            return null;
+        }
+        
+        return new UserDetailsImpl(
+                userId.longValue(),
+                claims.getSubject(),
+                claims.get(JwtUtils.CLAIM_NAME, String.class),
+                null,
+                null,
+                Collections.singletonList(new SimpleGrantedAuthority(role)),
+                true
+        );
+    }
+    
+    // 每次鉴权都会调用，不在这里输出日志
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        System.out.println("获取用户 " + username + " 的权限: " + authorities);
         return authorities;
     }
     
@@ -81,6 +101,6 @@ public class UserDetailsImpl implements UserDetails {
     
     @Override
     public boolean isEnabled() {
-        return true;
+        return enabled;
     }
 } 
\ No newline at end of file
@@ -2,25 +2,61 @@ package com.example.demo.security;
 
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.util.FrequencyCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
     
     @Autowired
     private UserRepository userRepository;
     
+    // 按用户名缓存，短时间过期兜底；用户修改、删除、停用时立即失效
+    private final FrequencyCache<String, UserDetailsImpl> cache;
+    
+    // 每次失效递增，加载期间发生过失效的结果不写入缓存
+    private final AtomicLong invalidations = new AtomicLong();
+    
+    public UserDetailsServiceImpl(@Value("${cache.user-details.maximum-size:10000}") int maximumSize,
+                                  @Value("${cache.user-details.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = new FrequencyCache<>(maximumSize, Duration.ofSeconds(ttlSeconds));
+    }
+    
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetailsImpl cached = cache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long generation = invalidations.get();
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("未找到用户: " + username));
         
-        return UserDetailsImpl.build(user);
+        UserDetailsImpl userDetails = UserDetailsImpl.build(user);
+        if (invalidations.get() == generation) {
+            cache.put(username, userDetails);
+        }
+        return userDetails;
+    }
+    
+    public void invalidate(String username) {
+        invalidations.incrementAndGet();
+        cache.invalidate(username);
+    }
+    
+    public Map<String, Object> getStats() {
+        return cache.stats();
     }
-} 
\ No newline at end of file
+}
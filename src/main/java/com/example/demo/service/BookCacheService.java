@@ -0,0 +1,26 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.ResourceVersion;
+import com.example.demo.entity.Book;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface BookCacheService {
+
+    Optional<Book> findBook(Long id);
+
+    Optional<BookDTO> findBookDTO(Long id);
+    
+    // 只读取已缓存的数据，未缓存时不访问数据库也不写入缓存
+    Optional<BookDTO> peekBookDTO(Long id);
+    
+    Optional<ResourceVersion> findBookVersion(Long id);
+
+    Optional<Long> findIdByIsbn(String isbn);
+
+    void evict(Long id, String isbn);
+
+    Map<String, Object> getStats();
+}
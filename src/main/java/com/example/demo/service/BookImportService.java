@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.response.ImportResult;
+
+import java.io.InputStream;
+
+public interface BookImportService {
+    
+    ImportResult importBooks(InputStream inputStream, String format, String jobId);
+    
+    ImportResult getImportProgress(String jobId);
+}
@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+public interface BookSearchService {
+
+    boolean isReady();
+
+    void rebuild();
+
+    void index(Book book);
+
+    void remove(Long bookId);
+
+    Page<Long> search(String keyword, Pageable pageable);
+}
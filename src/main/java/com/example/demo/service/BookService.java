@@ -1,12 +1,18 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.BookSummaryDTO;
+import com.example.demo.dto.ResourceVersion;
 import com.example.demo.dto.request.BookRequest;
+import com.example.demo.dto.response.CursorPage;
 import com.example.demo.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 
 public interface BookService {
     
@@ -18,23 +24,35 @@ public interface BookService {
     
     BookDTO findById(Long id);
     
+    ResourceVersion getBookVersion(Long id);
+    
     Book getBookEntity(Long id);
     
     BookDTO findByIsbn(String isbn);
     
-    Page<BookDTO> findAllBooks(Pageable pageable);
+    Page<BookSummaryDTO> findAllBooks(Pageable pageable);
+    
+    ResourceVersion getBooksVersion();
+    
+    CursorPage<BookDTO> findBooksByCursor(String cursor, int size, String sortBy, String direction);
     
-    Page<BookDTO> searchBooks(String keyword, Pageable pageable);
+    Page<BookSummaryDTO> searchBooks(String keyword, Pageable pageable);
     
-    Page<BookDTO> findByCategory(String category, Pageable pageable);
+    Page<BookSummaryDTO> findByCategory(String category, Pageable pageable);
     
-    Page<BookDTO> findByAuthor(String author, Pageable pageable);
+    Page<BookSummaryDTO> findByAuthor(String author, Pageable pageable);
     
-    List<BookDTO> findAvailableBooks();
+    void exportBooks(OutputStream outputStream, String format) throws IOException;
+    
+    void exportAvailableBooks(OutputStream outputStream, String format) throws IOException;
     
     boolean existsByIsbn(String isbn);
     
     void updateBookStatus(Long id, Book.Status status);
     
     void updateBookAvailability(Long id, int change);
+    
+    boolean adjustAvailability(Long id, int change);
+    
+    boolean adjustAvailability(Map<Long, Integer> changes);
 } 
\ No newline at end of file
@@ -1,11 +1,16 @@
 package com.example.demo.service;
 
 import com.example.demo.dto.BorrowDTO;
+import com.example.demo.dto.ResourceVersion;
 import com.example.demo.dto.request.BorrowRequest;
+import com.example.demo.dto.response.BatchResult;
+import com.example.demo.dto.response.CursorPage;
 import com.example.demo.entity.Borrow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface BorrowService {
@@ -18,17 +23,31 @@ public interface BorrowService {
     
     BorrowDTO returnBook(Long id);
     
+    BatchResult<BorrowDTO> approveBorrows(List<Long> ids);
+    
+    BatchResult<BorrowDTO> rejectBorrows(List<Long> ids);
+    
+    BatchResult<BorrowDTO> returnBooks(List<Long> ids);
+    
     BorrowDTO findById(Long id);
     
+    ResourceVersion getBorrowVersion(Long id);
+    
     Page<BorrowDTO> findAllBorrows(Pageable pageable);
     
+    ResourceVersion getBorrowsVersion();
+    
+    CursorPage<BorrowDTO> findBorrowsByCursor(String cursor, int size, String sortBy, String direction);
+    
     Page<BorrowDTO> findBorrowsByUser(Long userId, Pageable pageable);
     
     Page<BorrowDTO> findBorrowsByBook(Long bookId, Pageable pageable);
     
     Page<BorrowDTO> findBorrowsByStatus(Borrow.Status status, Pageable pageable);
     
-    List<BorrowDTO> findOverdueBooks();
+    void exportBorrows(OutputStream outputStream, String format) throws IOException;
+    
+    void exportOverdueBooks(OutputStream outputStream, String format) throws IOException;
     
     List<BorrowDTO> findCurrentBorrowsByUser(Long userId);
 } 
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.response.RollupPoint;
+import com.example.demo.entity.Borrow;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public interface CirculationRollupService {
+
+    // 记录一次借阅事件，应在事务提交后调用；loanDays 仅归还事件使用
+    void record(Borrow.Status status, Long bookId, String category, long loanDays);
+
+    void flush();
+
+    // 从借阅记录重建 from 当天及之后的汇总，from 为null时全部重建
+    long backfill(LocalDate from);
+
+    List<RollupPoint> query(RollupPoint.Granularity granularity, RollupPoint.Dimension dimension, String key,
+                            Borrow.Status status, LocalDate from, LocalDate to);
+
+    Map<String, Object> getStats();
+}
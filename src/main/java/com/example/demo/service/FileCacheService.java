@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.StoredFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+public interface FileCacheService {
+    
+    // 把文件 [start, end] 范围的内容从内存写出；文件不适合缓存或未被接纳时返回false，由调用方从磁盘发送
+    boolean write(StoredFile file, long start, long end, OutputStream out) throws IOException;
+    
+    // 文件被删除或替换时移出缓存
+    void invalidate(String fileName);
+    
+    Map<String, Object> getStats();
+}
@@ -1,7 +1,19 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.StoredFile;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Map;
+import java.util.Optional;
+
 public interface FileStorageService {
     String storeFile(MultipartFile file);
+    
+    // 按文件名查找已上传的文件，文件名不合法或文件不存在时返回空
+    Optional<StoredFile> findFile(String fileName);
+    
+    // 把早期按UUID命名的文件迁移为按内容存储，并替换图书封面地址
+    Map<String, Object> migrateLegacyFiles();
+    
+    Map<String, Object> getStats();
 } 
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.StoredFile;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface ImageRenditionService {
+    
+    // 上传完成后提交到后台线程池生成各尺寸的缩略图，不阻塞上传请求
+    void generate(String fileUrl);
+    
+    // 查找已生成的缩略图；尚未生成时返回空并提交生成任务，调用方先返回原图
+    Optional<StoredFile> findRendition(StoredFile original, StoredFile.Rendition rendition);
+    
+    Map<String, Object> getStats();
+}
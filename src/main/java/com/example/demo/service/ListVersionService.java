@@ -0,0 +1,17 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ResourceVersion;
+
+public interface ListVersionService {
+    
+    // 列表接口的条件GET校验信息，不访问数据库；其他实例和直接在数据库中的修改由后台定时核对发现
+    ResourceVersion getBooksVersion();
+    
+    ResourceVersion getBorrowsVersion();
+    
+    // 以下变更方法应在事务提交后调用
+    void booksChanged();
+    
+    // 借阅列表包含用户和图书字段，图书改名、用户改名及级联删除时也要调用
+    void borrowsChanged();
+}
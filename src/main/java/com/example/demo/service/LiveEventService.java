@@ -0,0 +1,28 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.BorrowDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+public interface LiveEventService {
+    
+    // 以下发布方法应在事务提交后调用
+    void publishBorrow(BorrowDTO borrow);
+    
+    void publishAvailability(BookDTO book);
+    
+    // 借阅事件（含可借数量变化）推送，供管理后台使用
+    SseEmitter subscribeBorrows(Long lastEventId);
+    
+    // 可借数量推送，bookId 为null时推送全部图书
+    SseEmitter subscribeAvailability(Long bookId, Long lastEventId);
+    
+    List<BorrowDTO> getRecentBorrows();
+    
+    void reloadRecentBorrows();
+    
+    Map<String, Object> getStats();
+}
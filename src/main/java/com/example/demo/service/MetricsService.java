@@ -0,0 +1,25 @@
+package com.example.demo.service;
+
+import com.example.demo.util.ConcurrentHistogram;
+
+import java.util.Map;
+
+public interface MetricsService {
+    
+    // 请求处理完成后调用，endpoint 为 "GET /api/books/{id}" 形式，statements 和 rows 为该请求的SQL语句数和读取行数
+    void recordRequest(String endpoint, long nanos, int statements, long rows);
+    
+    // 控制器和服务方法的耗时直方图（微秒），调用方缓存返回值，每次调用只记录一个值
+    ConcurrentHistogram methodHistogram(String className, String methodName);
+    
+    void recordStatement();
+    
+    void recordRow();
+    
+    void recordTransaction(long nanos, boolean committed);
+    
+    Map<String, Object> getStats();
+    
+    // Prometheus 文本格式
+    String scrape();
+}
@@ -0,0 +1,17 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+public interface OverdueService {
+    
+    void rebuild();
+    
+    void track(Long borrowId, LocalDate dueDate);
+    
+    void untrack(Long borrowId);
+    
+    int markOverdue();
+    
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,20 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.PopularBookDTO;
+
+import java.util.List;
+import java.util.Map;
+
+public interface PopularBookService {
+    
+    // 以下记录方法应在事务提交后调用
+    void recordRequest(Long bookId);
+    
+    void recordBorrow(Long bookId);
+    
+    List<PopularBookDTO> getPopularBooks(PopularBookDTO.Window window, int limit);
+    
+    void rebuild();
+    
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,23 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Borrow;
+
+import java.util.List;
+import java.util.Map;
+
+public interface StatsService {
+
+    // 以下变更方法应在事务提交后调用
+    void recordBorrowTransition(Borrow.Status from, Borrow.Status to, long count);
+
+    // 级联删除的借阅，参数为仓库分组统计返回的 [状态, 数量]
+    void recordBorrowsRemoved(List<Object[]> statusCounts);
+
+    void recordBookChange(String category, long books, long totalCopies, long availableCopies);
+
+    void recordUserChange(long count);
+
+    void reconcile();
+
+    Map<String, Object> getStats();
+}
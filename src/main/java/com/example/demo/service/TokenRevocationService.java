@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+import java.util.Map;
+
+public interface TokenRevocationService {
+    
+    boolean isRevoked(long userId, long issuedAt, String tokenId);
+    
+    void revokeToken(String tokenId, long expiresAt);
+    
+    void revokeUser(Long userId);
+    
+    long getNotBefore(Long userId);
+    
+    String newTokenId();
+    
+    Map<String, Object> getStats();
+}
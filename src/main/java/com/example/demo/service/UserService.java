@@ -18,6 +18,8 @@ public interface UserService {
     
     UserDTO updateUser(Long id, RegisterRequest registerRequest);
     
+    UserDTO updateUserStatus(Long id, User.Status status);
+    
     void deleteUser(Long id);
     
     boolean existsByUsername(String username);
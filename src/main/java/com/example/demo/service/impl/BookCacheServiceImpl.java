@@ -0,0 +1,127 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.ResourceVersion;
+import com.example.demo.entity.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.service.BookCacheService;
+import com.example.demo.util.FrequencyCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class BookCacheServiceImpl implements BookCacheService {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final FrequencyCache<Long, CachedBook> books;
+    private final FrequencyCache<String, Long> isbnIndex;
+
+    // 每次失效递增，加载期间发生过失效的结果不写入缓存，避免旧数据回填
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public BookCacheServiceImpl(@Value("${cache.book.maximum-size:10000}") int maximumSize) {
+        this.books = new FrequencyCache<>(maximumSize);
+        this.isbnIndex = new FrequencyCache<>(maximumSize);
+    }
+
+    @Override
+    public Optional<Book> findBook(Long id) {
+        // 返回副本，调用方修改实体不会影响缓存内容
+        return load(id).map(cached -> copyOf(cached.book));
+    }
+
+    @Override
+    public Optional<BookDTO> findBookDTO(Long id) {
+        return load(id).map(cached -> cached.dto);
+    }
+
+    @Override
+    public Optional<BookDTO> peekBookDTO(Long id) {
+        return Optional.ofNullable(books.get(id)).map(cached -> cached.dto);
+    }
+
+    @Override
+    public Optional<ResourceVersion> findBookVersion(Long id) {
+        return load(id).map(cached -> cached.version);
+    }
+
+    @Override
+    public Optional<Long> findIdByIsbn(String isbn) {
+        Long id = isbnIndex.get(isbn);
+        if (id != null) {
+            return Optional.of(id);
+        }
+
+        long generation = invalidations.get();
+        Optional<Book> book = bookRepository.findByIsbn(isbn);
+        book.ifPresent(found -> {
+            if (invalidations.get() == generation) {
+                isbnIndex.put(isbn, found.getId());
+                books.put(found.getId(), new CachedBook(found));
+            }
+        });
+        return book.map(Book::getId);
+    }
+
+    @Override
+    public void evict(Long id, String isbn) {
+        invalidations.incrementAndGet();
+        if (id != null) {
+            books.invalidate(id);
+        }
+        if (isbn != null) {
+            isbnIndex.invalidate(isbn);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("books", books.stats());
+        stats.put("isbn", isbnIndex.stats());
+        return stats;
+    }
+
+    private Optional<CachedBook> load(Long id) {
+        CachedBook cached = books.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long generation = invalidations.get();
+        Optional<CachedBook> loaded = bookRepository.findById(id).map(CachedBook::new);
+        loaded.ifPresent(found -> {
+            if (invalidations.get() == generation) {
+                books.put(id, found);
+            }
+        });
+        return loaded;
+    }
+
+    private static Book copyOf(Book book) {
+        return new Book(book.getId(), book.getIsbn(), book.getTitle(), book.getAuthor(), book.getPublisher(),
+                book.getPublishDate(), book.getCategory(), book.getDescription(), book.getCover(),
+                book.getLocation(), book.getStatus(), book.getTotalCopies(), book.getAvailableCopies(),
+                book.getCreateTime(), book.getUpdateTime(), book.getVersion());
+    }
+
+    private static class CachedBook {
+        private final Book book;
+        private final BookDTO dto;
+        private final ResourceVersion version;
+
+        CachedBook(Book book) {
+            this.book = copyOf(book);
+            this.dto = BookDTO.fromEntity(book);
+            this.version = new ResourceVersion(1L, book.getVersion(), book.getUpdateTime());
+        }
+    }
+}
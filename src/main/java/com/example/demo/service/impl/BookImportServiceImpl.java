@@ -0,0 +1,340 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.request.BookRequest;
+import com.example.demo.dto.response.ImportResult;
+import com.example.demo.entity.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.service.BookImportService;
+import com.example.demo.service.BookSearchService;
+import com.example.demo.service.ListVersionService;
+import com.example.demo.service.StatsService;
+import com.example.demo.util.CsvReader;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportServiceImpl.class);
+
+    // 配合连接参数 rewriteBatchedStatements=true，驱动会把批量语句改写成多行INSERT
+    private static final String INSERT_SQL = "INSERT INTO books (isbn, title, author, publisher, publish_date, " +
+            "category, description, cover, location, status, total_copies, available_copies, create_time, update_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, NOW(), NOW())";
+
+    // 最多返回的错误明细条数，超出部分只计数
+    private static final int MAX_ERROR_DETAILS = 1000;
+
+    // 已结束的导入任务保留时间
+    private static final long FINISHED_JOB_RETENTION_MINUTES = 60;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookSearchService bookSearchService;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private ListVersionService listVersionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${book.import.batch-size:1000}")
+    private int batchSize;
+
+    private final Map<String, ImportResult> jobs = new ConcurrentHashMap<>();
+
+    @Override
+    public ImportResult importBooks(InputStream inputStream, String format, String jobId) {
+        ImportResult result = new ImportResult(jobId != null && !jobId.isEmpty() ? jobId : UUID.randomUUID().toString());
+        removeFinishedJobs();
+        if (jobs.putIfAbsent(result.getJobId(), result) != null) {
+            throw new RuntimeException("导入任务已存在: " + result.getJobId());
+        }
+
+        // 文件内的ISBN去重，只保存字符串，不保留整行数据
+        Set<String> seenIsbns = new HashSet<>();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            RowReader rows = "csv".equalsIgnoreCase(format) ? csvRows(reader) : ndjsonRows(reader);
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                result.setProcessed(result.getProcessed() + 1);
+
+                if (row.error != null) {
+                    addError(result, row.line, null, row.error);
+                    continue;
+                }
+
+                String error = validate(row.request);
+                if (error != null) {
+                    addError(result, row.line, row.request.getIsbn(), error);
+                    continue;
+                }
+
+                if (!seenIsbns.add(row.request.getIsbn())) {
+                    result.setDuplicates(result.getDuplicates() + 1);
+                    continue;
+                }
+
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    flush(batch, result);
+                }
+            }
+            flush(batch, result);
+            result.setStatus(ImportResult.Status.COMPLETED);
+        } catch (IOException | RuntimeException e) {
+            logger.error("图书批量导入失败: {}", e.getMessage(), e);
+            result.setStatus(ImportResult.Status.FAILED);
+            result.setMessage(e.getMessage());
+        } finally {
+            result.setEndTime(LocalDateTime.now());
+        }
+
+        logger.info("图书批量导入结束: 任务={}, 处理={}, 导入={}, 重复={}, 失败={}", result.getJobId(),
+                result.getProcessed(), result.getImported(), result.getDuplicates(), result.getFailed());
+        return result;
+    }
+
+    @Override
+    public ImportResult getImportProgress(String jobId) {
+        ImportResult result = jobs.get(jobId);
+        if (result == null) {
+            throw new RuntimeException("未找到导入任务: " + jobId);
+        }
+        return result;
+    }
+
+    private void flush(List<ImportRow> batch, ImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        // 一次查询找出整批中数据库已存在的ISBN
+        List<String> isbns = batch.stream().map(row -> row.request.getIsbn()).collect(Collectors.toList());
+        Set<String> existing = new HashSet<>(bookRepository.findExistingIsbns(isbns));
+
+        List<ImportRow> toInsert = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            if (existing.contains(row.request.getIsbn())) {
+                result.setDuplicates(result.getDuplicates() + 1);
+            } else {
+                toInsert.add(row);
+            }
+        }
+        batch.clear();
+        if (toInsert.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<String> inserted;
+        try {
+            transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL,
+                    toInsert.stream().map(row -> toParameters(row.request)).collect(Collectors.toList())));
+            inserted = toInsert.stream().map(row -> row.request.getIsbn()).collect(Collectors.toList());
+        } catch (DataAccessException e) {
+            // 整批失败时（如并发写入了相同ISBN）逐行重试，定位出错的行
+            logger.warn("批量插入失败，改为逐行插入: {}", e.getMessage());
+            inserted = insertRowByRow(toInsert, result);
+        }
+        result.setImported(result.getImported() + inserted.size());
+
+        // 新增图书加入检索索引并计入统计，此时批次事务已提交
+        if (!inserted.isEmpty()) {
+            for (Book book : bookRepository.findByIsbnIn(inserted)) {
+                bookSearchService.index(book);
+                statsService.recordBookChange(book.getCategory(), 1, book.getTotalCopies(), book.getAvailableCopies());
+            }
+            listVersionService.booksChanged();
+        }
+    }
+
+    private List<String> insertRowByRow(List<ImportRow> rows, ImportResult result) {
+        List<String> inserted = new ArrayList<>();
+        for (ImportRow row : rows) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, toParameters(row.request));
+                inserted.add(row.request.getIsbn());
+            } catch (DuplicateKeyException e) {
+                result.setDuplicates(result.getDuplicates() + 1);
+            } catch (DataAccessException e) {
+                addError(result, row.line, row.request.getIsbn(), "写入失败: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+        return inserted;
+    }
+
+    private static Object[] toParameters(BookRequest request) {
+        return new Object[]{
+                request.getIsbn(), request.getTitle(), request.getAuthor(), request.getPublisher(),
+                request.getPublishDate(), request.getCategory(), request.getDescription(), request.getCover(),
+                request.getLocation(), Book.Status.AVAILABLE.name(), request.getTotalCopies(), request.getTotalCopies()
+        };
+    }
+
+    private String validate(BookRequest request) {
+        Set<ConstraintViolation<BookRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+    }
+
+    private void addError(ImportResult result, long line, String isbn, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_ERROR_DETAILS) {
+            result.getErrors().add(new ImportResult.RowError(line, isbn, message));
+        }
+    }
+
+    private void removeFinishedJobs() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusMinutes(FINISHED_JOB_RETENTION_MINUTES);
+        jobs.values().removeIf(job -> job.getEndTime() != null && job.getEndTime().isBefore(expireBefore));
+    }
+
+    // CSV格式：第一行为表头，列名与BookRequest字段一致，未知列忽略
+    private RowReader csvRows(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return () -> null;
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim(), i);
+        }
+
+        return () -> {
+            List<String> record;
+            long line;
+            do {
+                line = csv.getLineNumber();
+                record = csv.readRecord();
+            } while (record != null && record.size() == 1 && record.get(0).isEmpty());
+
+            if (record == null) {
+                return null;
+            }
+            try {
+                return new ImportRow(line, toBookRequest(columns, record), null);
+            } catch (RuntimeException e) {
+                return new ImportRow(line, null, "格式错误: " + e.getMessage());
+            }
+        };
+    }
+
+    // NDJSON格式：每行一个BookRequest对象
+    private RowReader ndjsonRows(BufferedReader reader) {
+        long[] lineNumber = {0};
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                lineNumber[0]++;
+            } while (line != null && line.isBlank());
+
+            if (line == null) {
+                return null;
+            }
+            try {
+                return new ImportRow(lineNumber[0], objectMapper.readValue(line, BookRequest.class), null);
+            } catch (JsonProcessingException e) {
+                return new ImportRow(lineNumber[0], null, "JSON格式错误: " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    private static BookRequest toBookRequest(Map<String, Integer> columns, List<String> record) {
+        BookRequest request = new BookRequest();
+        request.setIsbn(column(columns, record, "isbn"));
+        request.setTitle(column(columns, record, "title"));
+        request.setAuthor(column(columns, record, "author"));
+        request.setPublisher(column(columns, record, "publisher"));
+        request.setCategory(column(columns, record, "category"));
+        request.setDescription(column(columns, record, "description"));
+        request.setCover(column(columns, record, "cover"));
+        request.setLocation(column(columns, record, "location"));
+
+        String publishDate = column(columns, record, "publishDate");
+        if (publishDate != null) {
+            request.setPublishDate(LocalDate.parse(publishDate));
+        }
+        String totalCopies = column(columns, record, "totalCopies");
+        if (totalCopies != null) {
+            request.setTotalCopies(Integer.valueOf(totalCopies));
+        }
+        return request;
+    }
+
+    private static String column(Map<String, Integer> columns, List<String> record, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    @FunctionalInterface
+    private interface RowReader {
+        ImportRow next() throws IOException;
+    }
+
+    private static class ImportRow {
+        private final long line;
+        private final BookRequest request;
+        private final String error;
+
+        ImportRow(long line, BookRequest request, String error) {
+            this.line = line;
+            this.request = request;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.service.BookSearchService;
+import com.example.demo.util.NGramTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Service
+public class BookSearchServiceImpl implements BookSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchServiceImpl.class);
+
+    private static final int REBUILD_PAGE_SIZE = 2000;
+
+    // 删除标记超过该数量且超过存活文档数时压缩索引
+    private static final int COMPACT_THRESHOLD = 10000;
+
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready = false;
+
+    // 倒排表：gram -> 按内部序号递增的文档列表
+    private Map<String, IntList> postings = new HashMap<>();
+
+    // 内部序号 -> 图书ID / 归一化后的检索文本（已删除的为null）
+    private long[] ids = new long[1024];
+    private String[] texts = new String[1024];
+    private int size = 0;
+    private int deleted = 0;
+
+    private Map<Long, Integer> ordinals = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            ready = false;
+            clear();
+
+            // 分页加载全部图书，避免一次性读入内存
+            int page = 0;
+            Page<Book> books;
+            do {
+                books = bookRepository.findAll(PageRequest.of(page++, REBUILD_PAGE_SIZE, Sort.by("id")));
+                for (Book book : books) {
+                    add(book.getId(), searchableText(book));
+                }
+            } while (books.hasNext());
+
+            ready = true;
+            logger.info("图书检索索引构建完成: 文档数={}, gram数={}, 耗时={}ms",
+                    ordinals.size(), postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("图书检索索引构建失败，检索将回退到数据库查询", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(Book book) {
+        lock.writeLock().lock();
+        try {
+            delete(book.getId());
+            add(book.getId(), searchableText(book));
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            delete(bookId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Long> search(String keyword, Pageable pageable) {
+        String query = NGramTokenizer.normalize(keyword);
+        long[] matched;
+
+        lock.readLock().lock();
+        try {
+            matched = match(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Arrays.sort(matched);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(toList(matched, 0, matched.length), pageable, matched.length);
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), matched.length);
+        int to = Math.min(from + pageable.getPageSize(), matched.length);
+        return new PageImpl<>(toList(matched, from, to), pageable, matched.length);
+    }
+
+    private long[] match(String query) {
+        Set<String> grams = NGramTokenizer.queryGrams(query);
+
+        // 关键字无法使用索引时（如单个字母）直接扫描内存中的检索文本
+        if (grams.isEmpty()) {
+            return verify(null, size, query);
+        }
+
+        List<IntList> lists = new ArrayList<>(grams.size());
+        for (String gram : grams) {
+            IntList list = postings.get(gram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+
+        // 从最短的倒排表开始求交集
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        int[] candidates = Arrays.copyOf(lists.get(0).values, lists.get(0).size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = intersect(candidates, count, lists.get(i));
+        }
+
+        // gram只能缩小范围，最终按子串匹配校验，保证与LIKE '%keyword%'结果一致
+        return verify(candidates, count, query);
+    }
+
+    private long[] verify(int[] candidates, int count, String query) {
+        long[] result = new long[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            int ordinal = candidates == null ? i : candidates[i];
+            String text = texts[ordinal];
+            if (text != null && text.contains(query)) {
+                result[n++] = ids[ordinal];
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int intersect(int[] candidates, int count, IntList list) {
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < count && j < list.size) {
+            int a = candidates[i];
+            int b = list.values[j];
+            if (a == b) {
+                candidates[n++] = a;
+                i++;
+                j++;
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return n;
+    }
+
+    private void add(Long bookId, String text) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            texts = Arrays.copyOf(texts, size * 2);
+        }
+        int ordinal = size++;
+        ids[ordinal] = bookId;
+        texts[ordinal] = text;
+        ordinals.put(bookId, ordinal);
+
+        // 序号单调递增，追加后倒排表仍然有序
+        for (String gram : NGramTokenizer.indexGrams(text)) {
+            postings.computeIfAbsent(gram, key -> new IntList()).add(ordinal);
+        }
+    }
+
+    private void delete(Long bookId) {
+        Integer ordinal = ordinals.remove(bookId);
+        if (ordinal != null) {
+            texts[ordinal] = null;
+            deleted++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (deleted < COMPACT_THRESHOLD || deleted < ordinals.size()) {
+            return;
+        }
+
+        long[] oldIds = ids;
+        String[] oldTexts = texts;
+        int oldSize = size;
+        clear();
+        for (int i = 0; i < oldSize; i++) {
+            if (oldTexts[i] != null) {
+                add(oldIds[i], oldTexts[i]);
+            }
+        }
+        logger.info("图书检索索引已压缩: 文档数={}", ordinals.size());
+    }
+
+    private void clear() {
+        postings = new HashMap<>();
+        ids = new long[1024];
+        texts = new String[1024];
+        size = 0;
+        deleted = 0;
+        ordinals = new HashMap<>();
+    }
+
+    private static String searchableText(Book book) {
+        return NGramTokenizer.normalize(book.getTitle()) + FIELD_SEPARATOR
+                + NGramTokenizer.normalize(book.getAuthor()) + FIELD_SEPARATOR
+                + NGramTokenizer.normalize(book.getPublisher()) + FIELD_SEPARATOR
+                + NGramTokenizer.normalize(book.getIsbn());
+    }
+
+    private static List<Long> toList(long[] values, int from, int to) {
+        if (from >= to) {
+            return Collections.emptyList();
+        }
+        List<Long> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(values[i]);
+        }
+        return list;
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
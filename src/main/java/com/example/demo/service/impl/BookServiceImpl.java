@@ -1,25 +1,111 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.BookSummaryDTO;
+import com.example.demo.dto.ResourceVersion;
 import com.example.demo.dto.request.BookRequest;
+import com.example.demo.dto.response.CursorPage;
 import com.example.demo.entity.Book;
 import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.repository.KeysetQueryExecutor;
+import com.example.demo.service.BookCacheService;
+import com.example.demo.service.BookSearchService;
 import com.example.demo.service.BookService;
+import com.example.demo.service.ListVersionService;
+import com.example.demo.service.LiveEventService;
+import com.example.demo.service.StatsService;
+import com.example.demo.util.ExportWriter;
+import com.example.demo.util.KeysetCursor;
+import com.example.demo.util.TransactionUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookServiceImpl implements BookService {
     
+    // 游标分页允许的排序字段
+    private static final Map<String, Class<?>> CURSOR_SORT_KEYS = Map.of(
+            "id", Long.class,
+            "createTime", LocalDateTime.class,
+            "title", String.class,
+            "isbn", String.class);
+    
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    
+    // 导出列，与批量导入的列名保持一致
+    private static final Map<String, Function<BookDTO, Object>> EXPORT_COLUMNS = new LinkedHashMap<>();
+    
+    static {
+        EXPORT_COLUMNS.put("id", BookDTO::getId);
+        EXPORT_COLUMNS.put("isbn", BookDTO::getIsbn);
+        EXPORT_COLUMNS.put("title", BookDTO::getTitle);
+        EXPORT_COLUMNS.put("author", BookDTO::getAuthor);
+        EXPORT_COLUMNS.put("publisher", BookDTO::getPublisher);
+        EXPORT_COLUMNS.put("publishDate", BookDTO::getPublishDate);
+        EXPORT_COLUMNS.put("category", BookDTO::getCategory);
+        EXPORT_COLUMNS.put("description", BookDTO::getDescription);
+        EXPORT_COLUMNS.put("cover", BookDTO::getCover);
+        EXPORT_COLUMNS.put("location", BookDTO::getLocation);
+        EXPORT_COLUMNS.put("status", BookDTO::getStatus);
+        EXPORT_COLUMNS.put("totalCopies", BookDTO::getTotalCopies);
+        EXPORT_COLUMNS.put("availableCopies", BookDTO::getAvailableCopies);
+        EXPORT_COLUMNS.put("createTime", BookDTO::getCreateTime);
+    }
+    
     @Autowired
     private BookRepository bookRepository;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private KeysetQueryExecutor keysetQueryExecutor;
+    
+    @Autowired
+    private BookSearchService bookSearchService;
+    
+    @Autowired
+    private BookCacheService bookCacheService;
+    
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    
+    @Autowired
+    private BorrowRepository borrowRepository;
+    
+    @Autowired
+    private StatsService statsService;
+    
+    @Autowired
+    private LiveEventService liveEventService;
+    
+    @Autowired
+    private ListVersionService listVersionService;
+    
     @Override
     @Transactional
     public BookDTO addBook(BookRequest bookRequest) {
@@ -42,13 +128,26 @@ public class BookServiceImpl implements BookService {
         book.setAvailableCopies(bookRequest.getTotalCopies()); // 初始可用数量等于总数量
         book.setStatus(Book.Status.AVAILABLE);
         
-        return BookDTO.fromEntity(bookRepository.save(book));
+        Book saved = bookRepository.save(book);
+        BookDTO dto = BookDTO.fromEntity(saved);
+        TransactionUtils.afterCommit(() -> {
+            bookCacheService.evict(saved.getId(), saved.getIsbn());
+            bookSearchService.index(saved);
+            statsService.recordBookChange(saved.getCategory(), 1, saved.getTotalCopies(), saved.getAvailableCopies());
+            listVersionService.booksChanged();
+            liveEventService.publishAvailability(dto);
+        });
+        return dto;
     }
     
     @Override
     @Transactional
     public BookDTO updateBook(Long id, BookRequest bookRequest) {
-        Book book = getBookEntity(id);
+        Book book = loadBook(id);
+        String oldIsbn = book.getIsbn();
+        String oldCategory = book.getCategory();
+        int oldTotalCopies = book.getTotalCopies();
+        int oldAvailableCopies = book.getAvailableCopies();
         
         // 如果更改了ISBN，检查新ISBN是否已存在
         if (!book.getIsbn().equals(bookRequest.getIsbn()) &&
@@ -78,58 +177,165 @@ public class BookServiceImpl implements BookService {
             book.setStatus(Book.Status.BORROWED);
         }
         
-        return BookDTO.fromEntity(bookRepository.save(book));
+        Book saved = bookRepository.save(book);
+        BookDTO dto = BookDTO.fromEntity(saved);
+        TransactionUtils.afterCommit(() -> {
+            bookCacheService.evict(id, oldIsbn);
+            bookSearchService.index(saved);
+            // 分类可能变化，先从原分类扣除再计入新分类
+            statsService.recordBookChange(oldCategory, -1, -oldTotalCopies, -oldAvailableCopies);
+            statsService.recordBookChange(saved.getCategory(), 1, saved.getTotalCopies(), saved.getAvailableCopies());
+            // 借阅列表中带有书名和ISBN
+            listVersionService.booksChanged();
+            listVersionService.borrowsChanged();
+            liveEventService.publishAvailability(dto);
+        });
+        return dto;
     }
     
     @Override
     @Transactional
     public void deleteBook(Long id) {
-        Book book = getBookEntity(id);
+        Book book = loadBook(id);
+        // 借阅记录随图书级联删除，删除前统计各状态数量
+        List<Object[]> removedBorrows = borrowRepository.countByBookIdGroupByStatus(id);
         bookRepository.delete(book);
+        TransactionUtils.afterCommit(() -> {
+            bookCacheService.evict(id, book.getIsbn());
+            bookSearchService.remove(id);
+            statsService.recordBookChange(book.getCategory(), -1, -book.getTotalCopies(), -book.getAvailableCopies());
+            statsService.recordBorrowsRemoved(removedBorrows);
+            listVersionService.booksChanged();
+            listVersionService.borrowsChanged();
+            // 借阅记录已被级联删除，最近借阅列表重新加载
+            liveEventService.reloadRecentBorrows();
+        });
     }
     
     @Override
     public BookDTO findById(Long id) {
-        return BookDTO.fromEntity(getBookEntity(id));
+        return bookCacheService.findBookDTO(id)
+                .orElseThrow(() -> new RuntimeException("未找到图书ID: " + id));
+    }
+    
+    @Override
+    public ResourceVersion getBookVersion(Long id) {
+        // 校验信息随图书一起缓存，命中缓存时不访问数据库
+        return bookCacheService.findBookVersion(id)
+                .orElseGet(() -> new ResourceVersion(0L, 0L, null));
     }
     
     @Override
     public Book getBookEntity(Long id) {
+        return bookCacheService.findBook(id)
+                .orElseThrow(() -> new RuntimeException("未找到图书ID: " + id));
+    }
+    
+    // 写操作需要当前事务内的托管实体，不走缓存
+    private Book loadBook(Long id) {
         return bookRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("未找到图书ID: " + id));
     }
     
     @Override
     public BookDTO findByIsbn(String isbn) {
-        return BookDTO.fromEntity(bookRepository.findByIsbn(isbn)
-                .orElseThrow(() -> new RuntimeException("未找到ISBN: " + isbn)));
+        Long id = bookCacheService.findIdByIsbn(isbn)
+                .orElseThrow(() -> new RuntimeException("未找到ISBN: " + isbn));
+        return findById(id);
     }
     
     @Override
-    public Page<BookDTO> findAllBooks(Pageable pageable) {
-        return bookRepository.findAll(pageable).map(BookDTO::fromEntity);
+    public Page<BookSummaryDTO> findAllBooks(Pageable pageable) {
+        // 列表只查询摘要列，简介等字段在详情接口中加载
+        return bookRepository.findAllBookSummaries(pageable);
     }
     
     @Override
-    public Page<BookDTO> searchBooks(String keyword, Pageable pageable) {
-        return bookRepository.searchBooks(keyword, pageable).map(BookDTO::fromEntity);
+    public ResourceVersion getBooksVersion() {
+        return listVersionService.getBooksVersion();
     }
     
     @Override
-    public Page<BookDTO> findByCategory(String category, Pageable pageable) {
-        return bookRepository.findByCategory(category, pageable).map(BookDTO::fromEntity);
+    public CursorPage<BookDTO> findBooksByCursor(String cursor, int size, String sortBy, String direction) {
+        KeysetCursor position = KeysetCursor.resolve(cursor, sortBy, direction, CURSOR_SORT_KEYS);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        
+        List<Book> books = keysetQueryExecutor.seek(Book.class, position, pageSize + 1);
+        return CursorPage.of(books, pageSize, position, BookDTO::fromEntity);
     }
     
     @Override
-    public Page<BookDTO> findByAuthor(String author, Pageable pageable) {
-        return bookRepository.findByAuthorContainingIgnoreCase(author, pageable).map(BookDTO::fromEntity);
+    public Page<BookSummaryDTO> searchBooks(String keyword, Pageable pageable) {
+        // 索引未就绪或需要自定义排序时回退到数据库查询
+        if (!bookSearchService.isReady() || pageable.getSort().isSorted()) {
+            return bookRepository.searchBookSummaries(escapeLike(keyword), pageable);
+        }
+        
+        Page<Long> ids = bookSearchService.search(keyword, pageable);
+        if (ids.getContent().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, ids.getTotalElements());
+        }
+        Map<Long, BookSummaryDTO> books = bookRepository.findBookSummariesByIdIn(ids.getContent()).stream()
+                .collect(Collectors.toMap(BookSummaryDTO::getId, Function.identity()));
+        
+        // 按索引返回的顺序组装当前页
+        List<BookSummaryDTO> content = ids.getContent().stream()
+                .map(books::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, ids.getTotalElements());
     }
     
     @Override
-    public List<BookDTO> findAvailableBooks() {
-        return bookRepository.findByStatus(Book.Status.AVAILABLE).stream()
-                .map(BookDTO::fromEntity)
-                .collect(Collectors.toList());
+    public Page<BookSummaryDTO> findByCategory(String category, Pageable pageable) {
+        return bookRepository.findBookSummariesByCategory(category, pageable);
+    }
+    
+    @Override
+    public Page<BookSummaryDTO> findByAuthor(String author, Pageable pageable) {
+        return bookRepository.findBookSummariesByAuthor(escapeLike(author), pageable);
+    }
+    
+    // 转义 LIKE 通配符，与查询中的 ESCAPE '\' 对应，用户输入的 % _ 按普通字符匹配
+    private static String escapeLike(String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '%' || c == '_') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBooks(OutputStream outputStream, String format) throws IOException {
+        try (Stream<BookDTO> books = bookRepository.streamAllBookDTOs()) {
+            export(books, outputStream, format);
+        }
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAvailableBooks(OutputStream outputStream, String format) throws IOException {
+        try (Stream<BookDTO> books = bookRepository.streamBookDTOsByStatus(Book.Status.AVAILABLE)) {
+            export(books, outputStream, format);
+        }
+    }
+    
+    // 边读游标边写响应，内存中只保留当前行
+    private void export(Stream<BookDTO> books, OutputStream outputStream, String format) throws IOException {
+        try (ExportWriter<BookDTO> writer = ExportWriter.of(format, outputStream, EXPORT_COLUMNS, objectMapper)) {
+            Iterator<BookDTO> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+        }
     }
     
     @Override
@@ -140,34 +346,94 @@ public class BookServiceImpl implements BookService {
     @Override
     @Transactional
     public void updateBookStatus(Long id, Book.Status status) {
-        Book book = getBookEntity(id);
+        Book book = loadBook(id);
         book.setStatus(status);
         bookRepository.save(book);
+        TransactionUtils.afterCommit(() -> {
+            bookCacheService.evict(id, null);
+            listVersionService.booksChanged();
+            publishAvailability(id);
+        });
     }
     
     @Override
     @Transactional
     public void updateBookAvailability(Long id, int change) {
-        Book book = getBookEntity(id);
-        int newAvailable = book.getAvailableCopies() + change;
+        if (adjustAvailability(id, change)) {
+            return;
+        }
         
-        if (newAvailable < 0) {
+        // 更新失败时区分图书不存在和数量越界
+        loadBook(id);
+        if (change < 0) {
             throw new RuntimeException("可用数量不能小于0");
         }
+        throw new RuntimeException("可用数量不能大于总数量");
+    }
+    
+    @Override
+    @Transactional
+    public boolean adjustAvailability(Long id, int change) {
+        // 不先读取实体，直接用条件UPDATE调整数量和状态，省去一次读取和读改写之间的往返。
+        // 行锁仍由InnoDB持有到外层事务提交，在审批、批量处理中调用时并不会缩短持锁时间
+        if (bookRepository.adjustAvailability(id, change) == 0) {
+            return false;
+        }
         
-        if (newAvailable > book.getTotalCopies()) {
-            throw new RuntimeException("可用数量不能大于总数量");
+        // 分类优先取已缓存的数据；未缓存时只查分类，不在事务内加载图书，避免未提交的可借数量进入缓存
+        String category = bookCacheService.peekBookDTO(id).map(BookDTO::getCategory)
+                .orElseGet(() -> bookRepository.findCategoryById(id).orElse(null));
+        TransactionUtils.afterCommit(() -> {
+            bookCacheService.evict(id, null);
+            statsService.recordBookChange(category, 0, 0, change);
+            listVersionService.booksChanged();
+            publishAvailability(id);
+        });
+        return true;
+    }
+    
+    @Override
+    @Transactional
+    public boolean adjustAvailability(Map<Long, Integer> changes) {
+        if (changes.isEmpty()) {
+            return true;
         }
         
-        book.setAvailableCopies(newAvailable);
+        // 每本书一条条件UPDATE，作为一个JDBC批次发送；任一本书越界时返回false，由调用方回滚
+        SqlParameterSource[] parameters = changes.entrySet().stream()
+                .map(change -> new MapSqlParameterSource()
+                        .addValue("id", change.getKey())
+                        .addValue("change", change.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        int[] updated = namedParameterJdbcTemplate.batchUpdate(BookRepository.ADJUST_AVAILABILITY_SQL, parameters);
         
-        // 更新状态
-        if (newAvailable > 0) {
-            book.setStatus(Book.Status.AVAILABLE);
-        } else {
-            book.setStatus(Book.Status.BORROWED);
-        }
+        boolean succeeded = Arrays.stream(updated).noneMatch(count -> count == 0);
         
-        bookRepository.save(book);
+        // 按分类汇总可借数量变化，失败时调用方回滚，提交回调不会执行
+        Map<String, Integer> categoryChanges = new HashMap<>();
+        if (succeeded) {
+            // 与单本调整相同，只读已缓存的分类，其余一次查询取出
+            List<Long> uncached = new ArrayList<>();
+            changes.forEach((id, change) -> bookCacheService.peekBookDTO(id).ifPresentOrElse(
+                    book -> categoryChanges.merge(book.getCategory(), change, Integer::sum),
+                    () -> uncached.add(id)));
+            if (!uncached.isEmpty()) {
+                for (Object[] row : bookRepository.findIdAndCategoryByIdIn(uncached)) {
+                    categoryChanges.merge((String) row[1], changes.get((Long) row[0]), Integer::sum);
+                }
+            }
+        }
+        TransactionUtils.afterCommit(() -> {
+            changes.keySet().forEach(id -> bookCacheService.evict(id, null));
+            categoryChanges.forEach((category, change) -> statsService.recordBookChange(category, 0, 0, change));
+            listVersionService.booksChanged();
+            changes.keySet().forEach(this::publishAvailability);
+        });
+        return succeeded;
+    }
+    
+    // 缓存已失效，重新加载的同时预热缓存，推送提交后的可借数量
+    private void publishAvailability(Long id) {
+        bookCacheService.findBookDTO(id).ifPresent(liveEventService::publishAvailability);
     }
 } 
\ No newline at end of file
@@ -1,36 +1,115 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.dto.BorrowDTO;
+import com.example.demo.dto.ResourceVersion;
 import com.example.demo.dto.request.BorrowRequest;
+import com.example.demo.dto.response.BatchResult;
+import com.example.demo.dto.response.CursorPage;
 import com.example.demo.entity.Book;
 import com.example.demo.entity.Borrow;
 import com.example.demo.entity.User;
 import com.example.demo.repository.BorrowRepository;
+import com.example.demo.repository.KeysetQueryExecutor;
 import com.example.demo.service.BookService;
 import com.example.demo.service.BorrowService;
+import com.example.demo.service.CirculationRollupService;
+import com.example.demo.service.ListVersionService;
+import com.example.demo.service.LiveEventService;
+import com.example.demo.service.OverdueService;
+import com.example.demo.service.PopularBookService;
+import com.example.demo.service.StatsService;
 import com.example.demo.service.UserService;
+import com.example.demo.util.ExportWriter;
+import com.example.demo.util.KeysetCursor;
+import com.example.demo.util.TransactionUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BorrowServiceImpl implements BorrowService {
     
+    // 游标分页允许的排序字段
+    private static final Map<String, Class<?>> CURSOR_SORT_KEYS = Map.of(
+            "id", Long.class,
+            "createTime", LocalDateTime.class,
+            "borrowDate", LocalDate.class,
+            "dueDate", LocalDate.class);
+    
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    
+    private static final List<Borrow.Status> RETURNABLE_STATUSES = List.of(Borrow.Status.APPROVED, Borrow.Status.OVERDUE);
+    
+    private static final Map<String, Function<BorrowDTO, Object>> EXPORT_COLUMNS = new LinkedHashMap<>();
+    
+    static {
+        EXPORT_COLUMNS.put("id", BorrowDTO::getId);
+        EXPORT_COLUMNS.put("userId", BorrowDTO::getUserId);
+        EXPORT_COLUMNS.put("username", BorrowDTO::getUsername);
+        EXPORT_COLUMNS.put("userRealName", BorrowDTO::getUserRealName);
+        EXPORT_COLUMNS.put("bookId", BorrowDTO::getBookId);
+        EXPORT_COLUMNS.put("bookTitle", BorrowDTO::getBookTitle);
+        EXPORT_COLUMNS.put("bookIsbn", BorrowDTO::getBookIsbn);
+        EXPORT_COLUMNS.put("borrowDate", BorrowDTO::getBorrowDate);
+        EXPORT_COLUMNS.put("dueDate", BorrowDTO::getDueDate);
+        EXPORT_COLUMNS.put("returnDate", BorrowDTO::getReturnDate);
+        EXPORT_COLUMNS.put("status", BorrowDTO::getStatus);
+        EXPORT_COLUMNS.put("createTime", BorrowDTO::getCreateTime);
+    }
+    
     @Autowired
     private BorrowRepository borrowRepository;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private KeysetQueryExecutor keysetQueryExecutor;
+    
     @Autowired
     private UserService userService;
     
     @Autowired
     private BookService bookService;
     
+    @Autowired
+    private OverdueService overdueService;
+    
+    @Autowired
+    private StatsService statsService;
+    
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+    
+    @Autowired
+    private PopularBookService popularBookService;
+    
+    @Autowired
+    private LiveEventService liveEventService;
+    
+    @Autowired
+    private ListVersionService listVersionService;
+    
     @Override
     @Transactional
     public BorrowDTO borrowBook(Long userId, BorrowRequest borrowRequest) {
@@ -57,7 +136,15 @@ public class BorrowServiceImpl implements BorrowService {
         // 设置状态为待审核
         borrow.setStatus(Borrow.Status.PENDING);
         
-        return BorrowDTO.fromEntity(borrowRepository.save(borrow));
+        BorrowDTO dto = BorrowDTO.fromEntity(borrowRepository.save(borrow));
+        TransactionUtils.afterCommit(() -> {
+            statsService.recordBorrowTransition(null, Borrow.Status.PENDING, 1);
+            circulationRollupService.record(Borrow.Status.PENDING, book.getId(), book.getCategory(), 0);
+            popularBookService.recordRequest(book.getId());
+            listVersionService.borrowsChanged();
+            liveEventService.publishBorrow(dto);
+        });
+        return dto;
     }
     
     @Override
@@ -70,19 +157,26 @@ public class BorrowServiceImpl implements BorrowService {
             throw new RuntimeException("只能审核待处理的借阅请求");
         }
         
-        // 检查图书是否可借
-        Book book = borrow.getBook();
-        if (book.getAvailableCopies() <= 0) {
-            throw new RuntimeException("图书已全部借出");
+        // 条件更新借阅状态，并发审批同一条记录时只有一个能成功
+        if (borrowRepository.updateStatus(id, List.of(Borrow.Status.PENDING), Borrow.Status.APPROVED) == 0) {
+            throw new RuntimeException("只能审核待处理的借阅请求");
         }
         
-        // 更新借阅状态
-        borrow.setStatus(Borrow.Status.APPROVED);
-        
-        // 更新图书可用数量
-        bookService.updateBookAvailability(book.getId(), -1);
+        // 单条UPDATE扣减可用数量，库存不足时抛出异常回滚整个事务
+        if (!bookService.adjustAvailability(borrow.getBook().getId(), -1)) {
+            throw new RuntimeException("图书已全部借出");
+        }
         
-        return BorrowDTO.fromEntity(borrowRepository.save(borrow));
+        BorrowDTO dto = toDTO(borrow, Borrow.Status.APPROVED);
+        TransactionUtils.afterCommit(() -> {
+            overdueService.track(id, borrow.getDueDate());
+            statsService.recordBorrowTransition(Borrow.Status.PENDING, Borrow.Status.APPROVED, 1);
+            recordRollup(borrow, Borrow.Status.APPROVED, null);
+            popularBookService.recordBorrow(borrow.getBook().getId());
+            listVersionService.borrowsChanged();
+            liveEventService.publishBorrow(dto);
+        });
+        return dto;
     }
     
     @Override
@@ -91,14 +185,19 @@ public class BorrowServiceImpl implements BorrowService {
         Borrow borrow = findBorrowById(id);
         
         // 检查状态是否为待审核
-        if (borrow.getStatus() != Borrow.Status.PENDING) {
+        if (borrow.getStatus() != Borrow.Status.PENDING ||
+                borrowRepository.updateStatus(id, List.of(Borrow.Status.PENDING), Borrow.Status.REJECTED) == 0) {
             throw new RuntimeException("只能拒绝待处理的借阅请求");
         }
         
-        // 更新借阅状态
-        borrow.setStatus(Borrow.Status.REJECTED);
-        
-        return BorrowDTO.fromEntity(borrowRepository.save(borrow));
+        BorrowDTO dto = toDTO(borrow, Borrow.Status.REJECTED);
+        TransactionUtils.afterCommit(() -> {
+            statsService.recordBorrowTransition(Borrow.Status.PENDING, Borrow.Status.REJECTED, 1);
+            recordRollup(borrow, Borrow.Status.REJECTED, null);
+            listVersionService.borrowsChanged();
+            liveEventService.publishBorrow(dto);
+        });
+        return dto;
     }
     
     @Override
@@ -106,19 +205,173 @@ public class BorrowServiceImpl implements BorrowService {
     public BorrowDTO returnBook(Long id) {
         Borrow borrow = findBorrowById(id);
         
-        // 检查状态是否为已批准
-        if (borrow.getStatus() != Borrow.Status.APPROVED && borrow.getStatus() != Borrow.Status.OVERDUE) {
+        // 检查状态是否为已批准或逾期，并条件更新借阅状态和归还日期
+        LocalDate returnDate = LocalDate.now();
+        Borrow.Status from = borrow.getStatus() == Borrow.Status.APPROVED || borrow.getStatus() == Borrow.Status.OVERDUE
+                ? markReturned(id, returnDate) : null;
+        if (from == null) {
             throw new RuntimeException("只能归还已批准或逾期的借阅");
         }
         
-        // 更新借阅状态和归还日期
-        borrow.setStatus(Borrow.Status.RETURNED);
-        borrow.setReturnDate(LocalDate.now());
-        
         // 更新图书可用数量
         bookService.updateBookAvailability(borrow.getBook().getId(), 1);
+        BorrowDTO dto = toDTO(borrow, Borrow.Status.RETURNED);
+        dto.setReturnDate(returnDate);
+        TransactionUtils.afterCommit(() -> {
+            overdueService.untrack(id);
+            statsService.recordBorrowTransition(from, Borrow.Status.RETURNED, 1);
+            recordRollup(borrow, Borrow.Status.RETURNED, returnDate);
+            listVersionService.borrowsChanged();
+            liveEventService.publishBorrow(dto);
+        });
+        return dto;
+    }
+    
+    // 返回记录归还前的状态，不可归还时返回null。调用方读取借阅时不加锁，逾期任务可能随后把记录改为OVERDUE，
+    // 所以原状态以条件UPDATE实际匹配到的为准：先按APPROVED更新，未命中再按OVERDUE更新
+    private Borrow.Status markReturned(Long id, LocalDate returnDate) {
+        for (Borrow.Status status : RETURNABLE_STATUSES) {
+            if (borrowRepository.updateStatusAndReturnDate(id, List.of(status), Borrow.Status.RETURNED, returnDate) > 0) {
+                return status;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    @Transactional
+    public BatchResult<BorrowDTO> approveBorrows(List<Long> ids) {
+        return processBatch(ids, List.of(Borrow.Status.PENDING), Borrow.Status.APPROVED, -1,
+                "只能审核待处理的借阅请求", "图书已全部借出");
+    }
+    
+    @Override
+    @Transactional
+    public BatchResult<BorrowDTO> rejectBorrows(List<Long> ids) {
+        return processBatch(ids, List.of(Borrow.Status.PENDING), Borrow.Status.REJECTED, 0,
+                "只能拒绝待处理的借阅请求", null);
+    }
+    
+    @Override
+    @Transactional
+    public BatchResult<BorrowDTO> returnBooks(List<Long> ids) {
+        return processBatch(ids, RETURNABLE_STATUSES, Borrow.Status.RETURNED, 1,
+                "只能归还已批准或逾期的借阅", "可用数量不能大于总数量");
+    }
+    
+    // 批量状态迁移：一次查询加载并锁定全部记录，按图书汇总可用数量变化，状态和库存各批量更新一次
+    private BatchResult<BorrowDTO> processBatch(List<Long> ids, List<Borrow.Status> from, Borrow.Status to, int change,
+                                                String invalidStatusMessage, String outOfStockMessage) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        // 用户只读取不加锁，批量审批不阻塞同一用户的登录、资料修改等操作
+        borrowRepository.findUsersByBorrowIdIn(requested);
+        Map<Long, Borrow> borrows = borrowRepository.findAllByIdInForUpdate(requested).stream()
+                .collect(Collectors.toMap(Borrow::getId, Function.identity()));
+        
+        // 图书行已被锁定，按当前库存在内存中逐条分配，超出部分单独返回失败
+        Map<Long, Integer> capacity = new HashMap<>();
+        for (Borrow borrow : borrows.values()) {
+            Book book = borrow.getBook();
+            capacity.putIfAbsent(book.getId(), change < 0
+                    ? book.getAvailableCopies()
+                    : book.getTotalCopies() - book.getAvailableCopies());
+        }
         
-        return BorrowDTO.fromEntity(borrowRepository.save(borrow));
+        List<Long> accepted = new ArrayList<>();
+        Map<Long, Integer> changes = new HashMap<>();
+        Map<Long, String> errors = new HashMap<>();
+        for (Long id : requested) {
+            Borrow borrow = borrows.get(id);
+            if (borrow == null) {
+                errors.put(id, "未找到借阅记录ID: " + id);
+                continue;
+            }
+            if (!from.contains(borrow.getStatus())) {
+                errors.put(id, invalidStatusMessage);
+                continue;
+            }
+            
+            Long bookId = borrow.getBook().getId();
+            if (change != 0) {
+                int remaining = capacity.get(bookId);
+                if (remaining < Math.abs(change)) {
+                    errors.put(id, outOfStockMessage);
+                    continue;
+                }
+                capacity.put(bookId, remaining - Math.abs(change));
+                changes.merge(bookId, change, Integer::sum);
+            }
+            accepted.add(id);
+        }
+        
+        LocalDate returnDate = LocalDate.now();
+        if (!accepted.isEmpty()) {
+            int updated = to == Borrow.Status.RETURNED
+                    ? borrowRepository.updateStatusAndReturnDateByIdIn(accepted, from, to, returnDate)
+                    : borrowRepository.updateStatusByIdIn(accepted, from, to);
+            // 记录已加锁，数量不一致说明数据异常，回滚整个批次
+            if (updated != accepted.size() || !bookService.adjustAvailability(changes)) {
+                throw new RuntimeException("批量处理失败，借阅记录或图书库存已被修改，请重试");
+            }
+            
+            // 提交后按原状态更新统计计数；只有归还事件计入借阅天数，与单条处理和回填一致
+            LocalDate rollupReturnDate = to == Borrow.Status.RETURNED ? returnDate : null;
+            Map<Borrow.Status, Long> fromCounts = accepted.stream()
+                    .collect(Collectors.groupingBy(id -> borrows.get(id).getStatus(), Collectors.counting()));
+            TransactionUtils.afterCommit(() -> {
+                fromCounts.forEach((status, count) -> statsService.recordBorrowTransition(status, to, count));
+                accepted.forEach(id -> recordRollup(borrows.get(id), to, rollupReturnDate));
+                listVersionService.borrowsChanged();
+            });
+            
+            // 提交后同步逾期索引
+            if (to == Borrow.Status.APPROVED) {
+                TransactionUtils.afterCommit(() -> accepted.forEach(id -> {
+                    Borrow borrow = borrows.get(id);
+                    overdueService.track(id, borrow.getDueDate());
+                    popularBookService.recordBorrow(borrow.getBook().getId());
+                }));
+            } else if (to == Borrow.Status.RETURNED) {
+                TransactionUtils.afterCommit(() -> accepted.forEach(overdueService::untrack));
+            }
+        }
+        
+        // 按请求顺序返回每一条的结果
+        BatchResult<BorrowDTO> result = new BatchResult<>();
+        for (Long id : requested) {
+            String error = errors.get(id);
+            if (error != null) {
+                result.failure(id, error);
+                continue;
+            }
+            BorrowDTO dto = toDTO(borrows.get(id), to);
+            if (to == Borrow.Status.RETURNED) {
+                dto.setReturnDate(returnDate);
+            }
+            result.success(id, dto);
+        }
+        
+        // 提交后推送成功的状态变化
+        if (!accepted.isEmpty()) {
+            TransactionUtils.afterCommit(() -> result.getItems().stream()
+                    .filter(BatchResult.Item::isSuccess)
+                    .forEach(item -> liveEventService.publishBorrow(item.getData())));
+        }
+        return result;
+    }
+    
+    // 计入流通汇总，归还事件同时记录借阅天数
+    private void recordRollup(Borrow borrow, Borrow.Status status, LocalDate returnDate) {
+        Book book = borrow.getBook();
+        long loanDays = returnDate == null ? 0 : Math.max(0, ChronoUnit.DAYS.between(borrow.getBorrowDate(), returnDate));
+        circulationRollupService.record(status, book.getId(), book.getCategory(), loanDays);
+    }
+    
+    // 状态已通过条件UPDATE写入数据库，这里不修改托管实体，避免提交时再次产生UPDATE
+    private BorrowDTO toDTO(Borrow borrow, Borrow.Status status) {
+        BorrowDTO dto = BorrowDTO.fromEntity(borrow);
+        dto.setStatus(status.name());
+        return dto;
     }
     
     @Override
@@ -126,6 +379,11 @@ public class BorrowServiceImpl implements BorrowService {
         return BorrowDTO.fromEntity(findBorrowById(id));
     }
     
+    @Override
+    public ResourceVersion getBorrowVersion(Long id) {
+        return borrowRepository.findVersionById(id);
+    }
+    
     private Borrow findBorrowById(Long id) {
         return borrowRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("未找到借阅记录ID: " + id));
@@ -133,39 +391,70 @@ public class BorrowServiceImpl implements BorrowService {
     
     @Override
     public Page<BorrowDTO> findAllBorrows(Pageable pageable) {
-        return borrowRepository.findAll(pageable).map(BorrowDTO::fromEntity);
+        return borrowRepository.findAllBorrowDTOs(pageable);
+    }
+    
+    @Override
+    public ResourceVersion getBorrowsVersion() {
+        return listVersionService.getBorrowsVersion();
+    }
+    
+    @Override
+    public CursorPage<BorrowDTO> findBorrowsByCursor(String cursor, int size, String sortBy, String direction) {
+        KeysetCursor position = KeysetCursor.resolve(cursor, sortBy, direction, CURSOR_SORT_KEYS);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        
+        List<Borrow> borrows = keysetQueryExecutor.seek(Borrow.class, position, pageSize + 1, "user", "book");
+        return CursorPage.of(borrows, pageSize, position, BorrowDTO::fromEntity);
     }
     
     @Override
     public Page<BorrowDTO> findBorrowsByUser(Long userId, Pageable pageable) {
         User user = userService.findById(userId);
-        return borrowRepository.findByUser(user, pageable).map(BorrowDTO::fromEntity);
+        return borrowRepository.findBorrowDTOsByUserId(user.getId(), pageable);
     }
     
     @Override
     public Page<BorrowDTO> findBorrowsByBook(Long bookId, Pageable pageable) {
         Book book = bookService.getBookEntity(bookId);
-        return borrowRepository.findByBook(book, pageable).map(BorrowDTO::fromEntity);
+        return borrowRepository.findBorrowDTOsByBookId(book.getId(), pageable);
     }
     
     @Override
     public Page<BorrowDTO> findBorrowsByStatus(Borrow.Status status, Pageable pageable) {
-        return borrowRepository.findByStatus(status, pageable).map(BorrowDTO::fromEntity);
+        return borrowRepository.findBorrowDTOsByStatus(status, pageable);
     }
     
     @Override
-    public List<BorrowDTO> findOverdueBooks() {
-        LocalDate today = LocalDate.now();
-        return borrowRepository.findOverdueBooks(today).stream()
-                .map(BorrowDTO::fromEntity)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public void exportBorrows(OutputStream outputStream, String format) throws IOException {
+        try (Stream<BorrowDTO> borrows = borrowRepository.streamAllBorrowDTOs()) {
+            export(borrows, outputStream, format);
+        }
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void exportOverdueBooks(OutputStream outputStream, String format) throws IOException {
+        try (Stream<BorrowDTO> borrows = borrowRepository.streamOverdueBorrowDTOs()) {
+            export(borrows, outputStream, format);
+        }
+    }
+    
+    // 边读游标边写响应，内存中只保留当前行
+    private void export(Stream<BorrowDTO> borrows, OutputStream outputStream, String format) throws IOException {
+        try (ExportWriter<BorrowDTO> writer = ExportWriter.of(format, outputStream, EXPORT_COLUMNS, objectMapper)) {
+            Iterator<BorrowDTO> iterator = borrows.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+        }
     }
     
     @Override
     public List<BorrowDTO> findCurrentBorrowsByUser(Long userId) {
         User user = userService.findById(userId);
-        return borrowRepository.findByUserAndStatus(user, Borrow.Status.APPROVED).stream()
-                .map(BorrowDTO::fromEntity)
-                .collect(Collectors.toList());
+        // 逾期未还的借阅也属于当前借阅
+        return borrowRepository.findBorrowDTOsByUserIdAndStatusIn(user.getId(), RETURNABLE_STATUSES);
     }
-} 
\ No newline at end of file
+} 
\ No newline at end of file
@@ -0,0 +1,344 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.response.RollupPoint;
+import com.example.demo.entity.Borrow;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.service.CirculationRollupService;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 流通汇总：借阅事件先在内存中按（粒度, 时间桶, 维度, 维度值, 状态）累加，定时批量累加写入 borrow_rollups，
+// 区间查询按主键范围读取汇总行，耗时只与区间内的桶数有关，与借阅历史总量无关
+@Service
+public class CirculationRollupServiceImpl implements CirculationRollupService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CirculationRollupServiceImpl.class);
+    
+    private static final String UPSERT_SQL = "INSERT INTO borrow_rollups " +
+            "(granularity, bucket_start, dimension, dimension_key, status, event_count, loan_days) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE event_count = event_count + VALUES(event_count), loan_days = loan_days + VALUES(loan_days)";
+    
+    private static final String QUERY_SQL = "SELECT bucket_start, dimension_key, status, event_count, loan_days " +
+            "FROM borrow_rollups WHERE granularity = ? AND dimension = ? AND bucket_start >= ? AND bucket_start < ?";
+    
+    // 回填时每次读取的借阅记录数
+    private static final int BACKFILL_PAGE_SIZE = 5000;
+    
+    // 回填时内存中累计的汇总行超过该值就写入一次
+    private static final int BACKFILL_FLUSH_THRESHOLD = 50000;
+    
+    // 单次查询允许的最大天数，按小时查询时限制更严
+    private static final long MAX_HOURLY_RANGE_DAYS = 31;
+    private static final long MAX_DAILY_RANGE_DAYS = 3660;
+    
+    @Autowired
+    private BorrowRepository borrowRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Value("${rollup.hourly-retention-days:90}")
+    private int hourlyRetentionDays;
+    
+    // 尚未写入数据库的增量：[事件数, 借阅天数]
+    private final Map<RollupKey, long[]> pending = new ConcurrentHashMap<>();
+    
+    // 定时写入与回填互斥，回填期间产生的事件留在内存中，回填完成后再写入；
+    // 回填只重建截止时间之前的事件，之后的事件由内存增量写入，不会重复计数
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    
+    private volatile LocalDateTime lastFlushTime;
+    private volatile LocalDateTime lastBackfillTime;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // 汇总表为空（首次部署或初始化脚本重建了表）时从借阅记录回填
+        if (jdbcTemplate.queryForList("SELECT 1 FROM borrow_rollups LIMIT 1").isEmpty()) {
+            backfill(null);
+        }
+    }
+    
+    @Override
+    public void record(Borrow.Status status, Long bookId, String category, long loanDays) {
+        recorded.incrementAndGet();
+        add(pending, LocalDateTime.now(), status, bookId, category, loanDays, null);
+    }
+    
+    @Scheduled(initialDelayString = "${rollup.flush-interval-ms:5000}",
+            fixedDelayString = "${rollup.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("流通汇总写入失败，下次写入时重试: {}", e.getMessage(), e);
+        }
+    }
+    
+    @PreDestroy
+    @Override
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            
+            // 逐个取出增量，取出后新到的事件累加到新条目，不会丢失
+            Map<RollupKey, long[]> batch = new HashMap<>();
+            for (RollupKey key : pending.keySet()) {
+                long[] delta = pending.remove(key);
+                if (delta != null) {
+                    batch.put(key, delta);
+                }
+            }
+            
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                // 写入失败时放回，下次重试
+                batch.forEach((key, delta) -> pending.merge(key, delta, CirculationRollupServiceImpl::sum));
+                throw e;
+            }
+            lastFlushTime = LocalDateTime.now();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @Override
+    public long backfill(LocalDate from) {
+        flushLock.lock();
+        try {
+            flush();
+            // 截止时间之前记录的事件已写入并会被下面的删除清掉，由扫描借阅表重新计入；
+            // 之后记录的事件留在内存中，扫描时跳过推算时间不早于截止时间的事件，避免同一事件计入两次
+            LocalDateTime until = LocalDateTime.now();
+            long start = System.currentTimeMillis();
+            LocalDateTime since = from == null ? LocalDateTime.of(1970, 1, 1, 0, 0) : from.atStartOfDay();
+            // 超出保留期的小时桶不回填
+            LocalDateTime hourlySince = LocalDate.now().minusDays(hourlyRetentionDays).atStartOfDay();
+            
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            Long processed = transaction.execute(status -> {
+                jdbcTemplate.update("DELETE FROM borrow_rollups WHERE bucket_start >= ?", Timestamp.valueOf(since));
+                
+                Map<RollupKey, long[]> rollups = new HashMap<>();
+                long count = 0;
+                long afterId = 0;
+                List<Object[]> rows;
+                do {
+                    rows = borrowRepository.findRollupSources(afterId, since, PageRequest.of(0, BACKFILL_PAGE_SIZE));
+                    for (Object[] row : rows) {
+                        addHistory(rollups, row, since, until, hourlySince);
+                        afterId = (Long) row[0];
+                    }
+                    count += rows.size();
+                    if (rollups.size() >= BACKFILL_FLUSH_THRESHOLD) {
+                        write(rollups);
+                        rollups.clear();
+                    }
+                } while (rows.size() == BACKFILL_PAGE_SIZE);
+                write(rollups);
+                return count;
+            });
+            
+            lastBackfillTime = LocalDateTime.now();
+            logger.info("流通汇总回填完成: 起始日期={}, 借阅记录{}条, 耗时{}ms",
+                    from, processed, System.currentTimeMillis() - start);
+            return processed == null ? 0 : processed;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    // 借阅表只保存当前状态，历史事件时间按现有字段推算：
+    // 申请取创建时间，批准取借阅日期（仍为已批准时取更新时间），逾期取应还日期次日，拒绝和归还取更新时间
+    private void addHistory(Map<RollupKey, long[]> rollups, Object[] row, LocalDateTime since, LocalDateTime until,
+                            LocalDateTime hourlySince) {
+        Long bookId = (Long) row[1];
+        String category = (String) row[2];
+        Borrow.Status status = (Borrow.Status) row[3];
+        LocalDateTime createTime = (LocalDateTime) row[4];
+        LocalDateTime updateTime = (LocalDateTime) row[5];
+        LocalDate borrowDate = (LocalDate) row[6];
+        LocalDate dueDate = (LocalDate) row[7];
+        LocalDate returnDate = (LocalDate) row[8];
+        
+        addIfInRange(rollups, createTime, Borrow.Status.PENDING, bookId, category, 0, since, until, hourlySince);
+        switch (status) {
+            case APPROVED:
+                addIfInRange(rollups, updateTime, Borrow.Status.APPROVED, bookId, category, 0, since, until, hourlySince);
+                break;
+            case REJECTED:
+                addIfInRange(rollups, updateTime, Borrow.Status.REJECTED, bookId, category, 0, since, until, hourlySince);
+                break;
+            case OVERDUE:
+                addIfInRange(rollups, borrowDate.atStartOfDay(), Borrow.Status.APPROVED, bookId, category, 0,
+                        since, until, hourlySince);
+                addIfInRange(rollups, dueDate.plusDays(1).atStartOfDay(), Borrow.Status.OVERDUE, bookId, category, 0,
+                        since, until, hourlySince);
+                break;
+            case RETURNED:
+                addIfInRange(rollups, borrowDate.atStartOfDay(), Borrow.Status.APPROVED, bookId, category, 0,
+                        since, until, hourlySince);
+                if (returnDate != null && returnDate.isAfter(dueDate)) {
+                    addIfInRange(rollups, dueDate.plusDays(1).atStartOfDay(), Borrow.Status.OVERDUE, bookId, category, 0,
+                            since, until, hourlySince);
+                }
+                long loanDays = returnDate == null ? 0 : Math.max(0, ChronoUnit.DAYS.between(borrowDate, returnDate));
+                addIfInRange(rollups, updateTime, Borrow.Status.RETURNED, bookId, category, loanDays,
+                        since, until, hourlySince);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private void addIfInRange(Map<RollupKey, long[]> rollups, LocalDateTime time, Borrow.Status status, Long bookId,
+                              String category, long loanDays, LocalDateTime since, LocalDateTime until,
+                              LocalDateTime hourlySince) {
+        if (time != null && !time.isBefore(since) && time.isBefore(until)) {
+            add(rollups, time, status, bookId, category, loanDays, hourlySince);
+        }
+    }
+    
+    // 一个事件计入 小时/天 两种粒度 × 全部/分类/图书 三个维度
+    private static void add(Map<RollupKey, long[]> rollups, LocalDateTime time, Borrow.Status status, Long bookId,
+                            String category, long loanDays, LocalDateTime hourlySince) {
+        long[] delta = {1, loanDays};
+        LocalDateTime day = time.toLocalDate().atStartOfDay();
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        boolean hourly = hourlySince == null || !hour.isBefore(hourlySince);
+        
+        for (RollupPoint.Granularity granularity : RollupPoint.Granularity.values()) {
+            if (granularity == RollupPoint.Granularity.HOUR && !hourly) {
+                continue;
+            }
+            LocalDateTime bucket = granularity == RollupPoint.Granularity.HOUR ? hour : day;
+            rollups.merge(new RollupKey(granularity, bucket, RollupPoint.Dimension.ALL, RollupPoint.ALL_KEY, status),
+                    delta, CirculationRollupServiceImpl::sum);
+            if (category != null) {
+                rollups.merge(new RollupKey(granularity, bucket, RollupPoint.Dimension.CATEGORY, category, status),
+                        delta, CirculationRollupServiceImpl::sum);
+            }
+            if (bookId != null) {
+                rollups.merge(new RollupKey(granularity, bucket, RollupPoint.Dimension.BOOK, bookId.toString(), status),
+                        delta, CirculationRollupServiceImpl::sum);
+            }
+        }
+    }
+    
+    private static long[] sum(long[] a, long[] b) {
+        return new long[]{a[0] + b[0], a[1] + b[1]};
+    }
+    
+    private void write(Map<RollupKey, long[]> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        List<Object[]> parameters = new ArrayList<>(rollups.size());
+        rollups.forEach((key, delta) -> parameters.add(new Object[]{
+                key.getGranularity().name(), Timestamp.valueOf(key.getBucket()), key.getDimension().name(),
+                key.getKey(), key.getStatus().name(), delta[0], delta[1]}));
+        jdbcTemplate.batchUpdate(UPSERT_SQL, parameters);
+        flushedRows.addAndGet(parameters.size());
+    }
+    
+    // 每天清理超出保留期的小时汇总
+    @Scheduled(cron = "${rollup.purge-cron:0 30 3 * * *}")
+    public void purgeHourly() {
+        LocalDateTime before = LocalDate.now().minusDays(hourlyRetentionDays).atStartOfDay();
+        int deleted = jdbcTemplate.update("DELETE FROM borrow_rollups WHERE granularity = ? AND bucket_start < ?",
+                RollupPoint.Granularity.HOUR.name(), Timestamp.valueOf(before));
+        logger.info("已清理{}条过期的小时流通汇总", deleted);
+    }
+    
+    @Override
+    public List<RollupPoint> query(RollupPoint.Granularity granularity, RollupPoint.Dimension dimension, String key,
+                                   Borrow.Status status, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new RuntimeException("结束日期不能早于开始日期");
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        long maxDays = granularity == RollupPoint.Granularity.HOUR ? MAX_HOURLY_RANGE_DAYS : MAX_DAILY_RANGE_DAYS;
+        if (days > maxDays) {
+            throw new RuntimeException("查询区间不能超过" + maxDays + "天");
+        }
+        
+        StringBuilder sql = new StringBuilder(QUERY_SQL);
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(granularity.name());
+        parameters.add(dimension.name());
+        parameters.add(Timestamp.valueOf(from.atStartOfDay()));
+        parameters.add(Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        if (dimension == RollupPoint.Dimension.ALL) {
+            key = RollupPoint.ALL_KEY;
+        }
+        if (key != null && !key.isEmpty()) {
+            sql.append(" AND dimension_key = ?");
+            parameters.add(key);
+        }
+        if (status != null) {
+            sql.append(" AND status = ?");
+            parameters.add(status.name());
+        }
+        sql.append(" ORDER BY bucket_start, dimension_key, status");
+        
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new RollupPoint(
+                rs.getTimestamp("bucket_start").toLocalDateTime(), rs.getString("dimension_key"),
+                rs.getString("status"), rs.getLong("event_count"), rs.getLong("loan_days")), parameters.toArray());
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recorded", recorded.get());
+        stats.put("pending", pending.size());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("lastFlushTime", lastFlushTime);
+        stats.put("lastBackfillTime", lastBackfillTime);
+        stats.put("hourlyRetentionDays", hourlyRetentionDays);
+        return stats;
+    }
+    
+    @Data
+    private static class RollupKey {
+        private final RollupPoint.Granularity granularity;
+        private final LocalDateTime bucket;
+        private final RollupPoint.Dimension dimension;
+        private final String key;
+        private final Borrow.Status status;
+    }
+}
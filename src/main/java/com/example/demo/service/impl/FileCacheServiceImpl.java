@@ -0,0 +1,53 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.StoredFile;
+import com.example.demo.service.FileCacheService;
+import com.example.demo.util.OffHeapByteCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.Map;
+
+// 热门封面和缩略图的内存缓存：内容放在堆外内存中，命中时不打开文件也不读取磁盘。
+// 上传文件写入后内容不再变化，只有迁移删除旧文件时才需要失效
+@Service
+public class FileCacheServiceImpl implements FileCacheService {
+    
+    private final OffHeapByteCache cache;
+    
+    public FileCacheServiceImpl(@Value("${file.cache.memory-budget-mb:64}") long memoryBudgetMb,
+                                @Value("${file.cache.block-size-kb:16}") int blockSizeKb,
+                                @Value("${file.cache.max-entry-kb:1024}") long maxEntryKb) {
+        this.cache = new OffHeapByteCache(memoryBudgetMb * 1024 * 1024, blockSizeKb * 1024, maxEntryKb * 1024);
+    }
+    
+    @Override
+    public boolean write(StoredFile file, long start, long end, OutputStream out) throws IOException {
+        OffHeapByteCache.Entry entry = cache.acquire(file.getFileName());
+        if (entry == null) {
+            entry = cache.load(file.getFileName(), file.getPath(), file.getSize());
+            if (entry == null) {
+                return false;
+            }
+        }
+        try {
+            cache.write(entry, start, end, Channels.newChannel(out));
+            return true;
+        } finally {
+            cache.release(entry);
+        }
+    }
+    
+    @Override
+    public void invalidate(String fileName) {
+        cache.invalidate(fileName);
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        return cache.stats();
+    }
+}
@@ -1,26 +1,111 @@
 package com.example.demo.service.impl;
 
 import com.example.demo.config.FileStorageProperties;
+import com.example.demo.dto.StoredFile;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.service.BookCacheService;
+import com.example.demo.service.FileCacheService;
 import com.example.demo.service.FileStorageService;
+import com.example.demo.service.ListVersionService;
+import com.example.demo.util.FrequencyCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
+// 按内容寻址存储：文件名为内容的SHA-256加扩展名，按哈希前两级各两位分目录存放，相同内容只保存一份。
+// 对外的URL仍是 /api/files/文件名，目录由文件名推算；早期上传的UUID文件可由迁移任务改为按内容存储，
+// 迁移后旧文件名保留为指向新文件的硬链接，已发出的旧地址继续可用
 @Service
 public class FileStorageServiceImpl implements FileStorageService {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageServiceImpl.class);
+
+    private static final String URL_PREFIX = "/api/files/";
+
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    // 早期按UUID命名、直接放在上传目录下的文件
+    private static final Pattern LEGACY_NAME = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}(\\.[a-z0-9]{1,10})?",
+            Pattern.CASE_INSENSITIVE);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookCacheService bookCacheService;
+
+    @Autowired
+    private FileCacheService fileCacheService;
+
+    @Autowired
+    private ListVersionService listVersionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${file.migrate-legacy-on-startup:false}")
+    private boolean migrateLegacyOnStartup;
+
     private final Path fileStorageLocation;
 
+    // 上传时先写入的临时目录，与存储目录在同一文件系统，写完后原子移动
+    private final Path tempLocation;
+
+    // 迁移只允许一个线程执行；迁移期间有文件和数据库I/O，用显式锁避免虚拟线程固定载体线程
+    private final ReentrantLock migrationLock = new ReentrantLock();
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    // 文件名 -> 元数据，上传后文件不再修改，命中时不再访问文件系统
+    private final FrequencyCache<String, StoredFile> files;
+
+    // 扩展名 -> 内容类型
+    private final Map<String, MediaType> contentTypes = new ConcurrentHashMap<>();
+
     @Autowired
-    public FileStorageServiceImpl(FileStorageProperties fileStorageProperties) {
+    public FileStorageServiceImpl(FileStorageProperties fileStorageProperties,
+                                  @Value("${file.metadata-cache-size:10000}") int metadataCacheSize) {
+        this.files = new FrequencyCache<>(metadataCacheSize);
+        
         // 添加空值检查，如果uploadDir为空，则使用默认值
         String uploadDir = fileStorageProperties.getUploadDir();
         if (uploadDir == null || uploadDir.trim().isEmpty()) {
@@ -29,14 +114,30 @@ public class FileStorageServiceImpl implements FileStorageService {
         
         this.fileStorageLocation = Paths.get(uploadDir)
                 .toAbsolutePath().normalize();
-
+        this.tempLocation = this.fileStorageLocation.resolve(".tmp");
+        
         try {
-            Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.tempLocation);
         } catch (Exception ex) {
             throw new RuntimeException("无法创建文件上传目录: " + this.fileStorageLocation, ex);
         }
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // 清理上次异常退出时残留的临时文件
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(tempLocation)) {
+            for (Path temp : temps) {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            logger.warn("清理上传临时文件失败", ex);
+        }
+        if (migrateLegacyOnStartup) {
+            migrateLegacyFiles();
+        }
+    }
+
     @Override
     public String storeFile(MultipartFile file) {
         // 获取原始文件名
@@ -47,22 +148,234 @@ public class FileStorageServiceImpl implements FileStorageService {
             throw new RuntimeException("文件名包含非法路径序列 " + originalFileName);
         }
         
-        // 生成新的文件名，避免文件名冲突
-        String fileExtension = "";
-        if (originalFileName.contains(".")) {
-            fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
+        try (InputStream input = file.getInputStream()) {
+            return URL_PREFIX + store(input, extensionOf(originalFileName));
+        } catch (IOException ex) {
+            throw new RuntimeException("无法存储文件 " + originalFileName, ex);
         }
-        String newFileName = UUID.randomUUID().toString() + fileExtension;
-        
+    }
+
+    // 边写临时文件边计算摘要，只读一遍上传内容；已存在相同内容时丢弃临时文件，返回已有的文件名
+    private String store(InputStream input, String extension) throws IOException {
+        Path temp = Files.createTempFile(tempLocation, "upload-", ".tmp");
         try {
-            // 将文件复制到目标位置
-            Path targetLocation = this.fileStorageLocation.resolve(newFileName);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            MessageDigest digest = sha256();
+            try (InputStream digesting = new DigestInputStream(input, digest);
+                 OutputStream output = Files.newOutputStream(temp)) {
+                digesting.transferTo(output);
+            }
+            String fileName = HexFormat.of().formatHex(digest.digest()) + extension;
+            Path target = resolve(fileName);
+            if (Files.exists(target)) {
+                duplicates.incrementAndGet();
+                return fileName;
+            }
             
-            // 返回可访问的URL路径
-            return "/api/files/" + newFileName;
+            Files.createDirectories(target.getParent());
+            try {
+                // 不覆盖：同一内容并发上传时后到的一方得到 FileAlreadyExistsException，按重复处理
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                stored.incrementAndGet();
+            } catch (FileAlreadyExistsException ex) {
+                duplicates.incrementAndGet();
+            }
+            return fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // 扩展名只保留小写字母和数字，决定响应的内容类型
+    private static String extensionOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return "";
+        }
+        String extension = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? "." + extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // 按文件名前四个字符分两级目录，每个目录下的文件数保持在较小的范围
+    private Path resolve(String fileName) {
+        if (fileName.length() < 4) {
+            return this.fileStorageLocation.resolve(fileName);
+        }
+        return this.fileStorageLocation.resolve(fileName.substring(0, 2))
+                .resolve(fileName.substring(2, 4))
+                .resolve(fileName);
+    }
+
+    @Override
+    public Optional<StoredFile> findFile(String fileName) {
+        StoredFile cached = files.get(fileName);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        
+        // 只接受文件名，拒绝路径分隔符、相对路径和隐藏文件
+        if (fileName.isEmpty() || fileName.startsWith(".") || fileName.contains("/")
+                || fileName.contains("\\") || fileName.contains("..")) {
+            return Optional.empty();
+        }
+        
+        // 先查分目录存储，未找到再查迁移前直接放在上传目录下的文件
+        Optional<StoredFile> file = load(fileName, resolve(fileName));
+        if (file.isEmpty()) {
+            file = load(fileName, this.fileStorageLocation.resolve(fileName));
+        }
+        file.ifPresent(found -> files.put(fileName, found));
+        return file;
+    }
+
+    // 文件不存在时不缓存，之后上传的同名文件可以被找到
+    private Optional<StoredFile> load(String fileName, Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new StoredFile(fileName, path, attributes.size(),
+                    attributes.lastModifiedTime().toMillis(), contentType(fileName)));
         } catch (IOException ex) {
-            throw new RuntimeException("无法存储文件 " + originalFileName, ex);
+            return Optional.empty();
+        }
+    }
+
+    // 把上传目录下的UUID文件改为按内容存储：复制到新位置、替换图书封面地址，再把旧文件替换为指向新文件的硬链接。
+    // 旧文件名始终可以访问（缓存、外部页面中的旧地址不会失效），旧的缩略图保留；
+    // 文件系统不支持硬链接时保留旧文件。已替换为链接的文件再次执行时跳过
+    @Override
+    public Map<String, Object> migrateLegacyFiles() {
+        migrationLock.lock();
+        try {
+            return migrate();
+        } finally {
+            migrationLock.unlock();
+        }
+    }
+
+    private Map<String, Object> migrate() {
+        long start = System.currentTimeMillis();
+        int migrated = 0;
+        int linked = 0;
+        int skipped = 0;
+        int failed = 0;
+        int updatedBooks = 0;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        
+        // 一次查出引用了上传文件的封面，按文件名分组，避免每个文件扫描一遍图书表
+        Map<String, List<Long>> coverBooks = new HashMap<>();
+        for (Object[] row : bookRepository.findIdAndCoverByCoverLike("%" + URL_PREFIX + "%")) {
+            String cover = (String) row[1];
+            coverBooks.computeIfAbsent(cover.substring(cover.lastIndexOf('/') + 1), key -> new ArrayList<>())
+                    .add((Long) row[0]);
+        }
+        
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.fileStorageLocation,
+                entry -> LEGACY_NAME.matcher(entry.getFileName().toString()).matches())) {
+            for (Path legacy : entries) {
+                if (!Files.isRegularFile(legacy)) {
+                    continue;
+                }
+                String legacyName = legacy.getFileName().toString();
+                try {
+                    if (isLinked(legacy)) {
+                        skipped++;
+                        continue;
+                    }
+                    String fileName;
+                    try (InputStream input = Files.newInputStream(legacy)) {
+                        fileName = store(input, extensionOf(legacyName));
+                    }
+                    
+                    List<Long> bookIds = coverBooks.getOrDefault(legacyName, List.of());
+                    if (!bookIds.isEmpty()) {
+                        Integer updated = transaction.execute(status -> bookRepository.replaceCover(
+                                bookIds, URL_PREFIX + legacyName, URL_PREFIX + fileName));
+                        updatedBooks += updated == null ? 0 : updated;
+                        bookIds.forEach(id -> bookCacheService.evict(id, null));
+                        listVersionService.booksChanged();
+                    }
+                    
+                    if (linkLegacy(legacy, resolve(fileName))) {
+                        linked++;
+                    }
+                    files.invalidate(legacyName);
+                    fileCacheService.invalidate(legacyName);
+                    migrated++;
+                } catch (IOException | RuntimeException ex) {
+                    failed++;
+                    logger.warn("迁移上传文件失败: {}", legacyName, ex);
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("无法读取文件上传目录: " + this.fileStorageLocation, ex);
+        }
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("migrated", migrated);
+        result.put("linked", linked);
+        result.put("skipped", skipped);
+        result.put("failed", failed);
+        result.put("updatedBooks", updatedBooks);
+        result.put("elapsedMs", System.currentTimeMillis() - start);
+        if (migrated > 0 || failed > 0) {
+            logger.info("上传文件迁移完成: {}", result);
         }
+        return result;
+    }
+
+    // 在临时目录创建指向新文件的硬链接，再原子替换旧文件，替换过程中旧文件名始终可读；
+    // 不支持硬链接时保留原文件，返回false
+    private boolean linkLegacy(Path legacy, Path target) throws IOException {
+        Path link = tempLocation.resolve("link-" + legacy.getFileName());
+        Files.deleteIfExists(link);
+        try {
+            Files.createLink(link, target);
+        } catch (UnsupportedOperationException | FileSystemException ex) {
+            logger.debug("无法创建硬链接，保留原文件: {}", legacy, ex);
+            return false;
+        }
+        try {
+            Files.move(link, legacy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(link);
+        }
+        return true;
+    }
+
+    // 链接数大于1说明已替换为硬链接；无法读取链接数的文件系统按未迁移处理，重新计算摘要后得到相同结果
+    private static boolean isLinked(Path legacy) {
+        try {
+            Object links = Files.getAttribute(legacy, "unix:nlink");
+            return links instanceof Integer && (Integer) links > 1;
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("stored", stored.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("metadata", files.stats());
+        return stats;
+    }
+
+    // 内容类型按扩展名推断并缓存，不再每次读取文件内容探测
+    private MediaType contentType(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return contentTypes.computeIfAbsent(extension, key -> MediaTypeFactory.getMediaType(fileName)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,283 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.StoredFile;
+import com.example.demo.service.FileStorageService;
+import com.example.demo.service.ImageRenditionService;
+import com.example.demo.util.FrequencyCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+// 封面缩略图：上传后在有界线程池中生成固定的几种宽度，与原图存放在同一目录，文件名为 原名-尺寸.扩展名。
+// 队列满时丢弃任务，之后第一次请求该尺寸时再次提交；已有的旧文件也按这种方式逐步补齐
+@Service
+public class ImageRenditionServiceImpl implements ImageRenditionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ImageRenditionServiceImpl.class);
+    
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final String PNG = "png";
+    
+    // 只为原图生成缩略图：按内容寻址的 SHA-256 文件名或早期的UUID文件名。
+    // 缩略图本身也能通过 /api/files 访问，带 -thumb/-small/-large 后缀的名称不匹配，不会再逐级生成缩略图的缩略图
+    private static final Pattern ORIGINAL_NAME = Pattern.compile(
+            "([0-9a-f]{64}|[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12})(\\.[a-z0-9]{1,10})?",
+            Pattern.CASE_INSENSITIVE);
+    
+    @Autowired
+    private FileStorageService fileStorageService;
+    
+    // 解码前先读取图片尺寸，超过像素上限的图片不处理，避免解码时占满堆内存
+    @Value("${image.rendition.max-pixels:40000000}")
+    private long maxPixels;
+    
+    private final ThreadPoolExecutor executor;
+    
+    // 已在队列中或正在处理的原图，避免重复提交
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    
+    // 内容类型 -> ImageIO 是否能解码
+    private final Map<MediaType, Boolean> readableTypes = new ConcurrentHashMap<>();
+    
+    // 无法解码的文件，不再重复尝试
+    private final FrequencyCache<String, Boolean> unsupported = new FrequencyCache<>(10000);
+    
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong processingNanos = new AtomicLong();
+    
+    public ImageRenditionServiceImpl(@Value("${image.rendition.threads:2}") int threads,
+                                     @Value("${image.rendition.queue-capacity:200}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-rendition-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    // 缩放是CPU密集任务，优先级低于请求处理线程
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    @Override
+    public void generate(String fileUrl) {
+        String fileName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
+        fileStorageService.findFile(fileName).ifPresent(this::submit);
+    }
+    
+    @Override
+    public Optional<StoredFile> findRendition(StoredFile original, StoredFile.Rendition rendition) {
+        if (!isSupported(original)) {
+            return Optional.empty();
+        }
+        Optional<StoredFile> file = fileStorageService.findFile(renditionName(original.getFileName(), rendition));
+        if (file.isEmpty()) {
+            submit(original);
+        }
+        return file;
+    }
+    
+    private void submit(StoredFile original) {
+        if (!isSupported(original) || !pending.add(original.getFileName())) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(original);
+                } finally {
+                    pending.remove(original.getFileName());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(original.getFileName());
+            rejected.incrementAndGet();
+        }
+    }
+    
+    private boolean isSupported(StoredFile file) {
+        if (!ORIGINAL_NAME.matcher(file.getFileName()).matches()) {
+            return false;
+        }
+        boolean readable = readableTypes.computeIfAbsent(file.getContentType(), type -> "image".equals(type.getType())
+                && ImageIO.getImageReadersByMIMEType(type.toString()).hasNext());
+        return readable && unsupported.get(file.getFileName()) == null;
+    }
+    
+    private void process(StoredFile original) {
+        // 从大到小生成，较小的尺寸由上一级缩略图继续缩小
+        Map<StoredFile.Rendition, Path> targets = new LinkedHashMap<>();
+        StoredFile.Rendition[] renditions = StoredFile.Rendition.values();
+        for (int i = renditions.length - 1; i >= 0; i--) {
+            StoredFile.Rendition rendition = renditions[i];
+            Path target = original.getPath().resolveSibling(renditionName(original.getFileName(), rendition));
+            if (!Files.exists(target)) {
+                targets.put(rendition, target);
+            }
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            BufferedImage source = read(original.getPath());
+            if (source == null) {
+                unsupported.put(original.getFileName(), Boolean.TRUE);
+                failed.incrementAndGet();
+                return;
+            }
+            boolean png = PNG.equals(formatOf(original.getFileName()));
+            boolean alpha = png && source.getColorModel().hasAlpha();
+            BufferedImage image = source;
+            for (Map.Entry<StoredFile.Rendition, Path> target : targets.entrySet()) {
+                image = scale(image, target.getKey().getWidth(), alpha);
+                write(image, target.getValue(), png);
+                generated.incrementAndGet();
+            }
+        } catch (IOException | RuntimeException e) {
+            unsupported.put(original.getFileName(), Boolean.TRUE);
+            failed.incrementAndGet();
+            logger.warn("生成缩略图失败: {}", original.getFileName(), e);
+        } finally {
+            processingNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+    
+    // 读取尺寸后再解码，GIF等多帧图片只取第一帧
+    private BufferedImage read(Path path) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(path.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxPixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    // 每次最多缩小一半，逐步缩放到目标宽度，画质接近高质量插值但开销小得多；不放大小图
+    private static BufferedImage scale(BufferedImage source, int targetWidth, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        int width = Math.max(source.getWidth(), 1);
+        int finalWidth = Math.min(width, targetWidth);
+        BufferedImage current = source;
+        do {
+            int nextWidth = Math.max(finalWidth, width / 2);
+            int nextHeight = Math.max(1, (int) Math.round((double) source.getHeight() * nextWidth / source.getWidth()));
+            BufferedImage next = new BufferedImage(nextWidth, nextHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, nextWidth, nextHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+            width = nextWidth;
+        } while (width > finalWidth);
+        return current;
+    }
+    
+    // 先写入临时文件再原子替换，请求不会读到写了一半的缩略图
+    private static void write(BufferedImage image, Path target, boolean png) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".rendition-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(png ? PNG : "jpeg").next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (!png) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(JPEG_QUALITY);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private static String renditionName(String fileName, StoredFile.Rendition rendition) {
+        int dot = fileName.lastIndexOf('.');
+        String base = dot < 0 ? fileName : fileName.substring(0, dot);
+        return base + "-" + rendition.name().toLowerCase(Locale.ROOT) + "." + formatOf(fileName);
+    }
+    
+    // 缩略图格式由原图扩展名决定：PNG、GIF 可能带透明通道，保存为PNG，其余保存为JPEG
+    private static String formatOf(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return extension.equals(PNG) || extension.equals("gif") ? PNG : "jpg";
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", executor.getMaximumPoolSize());
+        stats.put("active", executor.getActiveCount());
+        stats.put("queued", executor.getQueue().size());
+        stats.put("generated", generated.get());
+        stats.put("failed", failed.get());
+        stats.put("rejected", rejected.get());
+        long completed = executor.getCompletedTaskCount();
+        stats.put("completedTasks", completed);
+        stats.put("averageTaskMillis", completed == 0 ? 0 : processingNanos.get() / completed / 1_000_000);
+        return stats;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.ResourceVersion;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.ListVersionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// 列表的校验信息：每类资源一个代数，写操作提交后递增，列表请求只读内存，不再对整表做聚合查询。
+// 代数不区分筛选条件，任一图书变化时所有图书列表都重新校验；修改时间初始为启动时间，重启后旧的校验头不会命中。
+// 提交回调只覆盖本实例的写操作，其他实例或直接在数据库中的修改由定时核对发现：按间隔查询各表的记录数和
+// 最后修改时间（均走索引），与上一次不同时同样递增代数，旧的校验头最多在两个核对间隔内命中
+@Service
+public class ListVersionServiceImpl implements ListVersionService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ListVersionServiceImpl.class);
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private BorrowRepository borrowRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    private final AtomicReference<ResourceVersion> books;
+    private final AtomicReference<ResourceVersion> borrows;
+    
+    // 上一次核对时数据库中的状态，首次核对只记录不递增
+    private volatile ResourceVersion checkedBooks;
+    private volatile ResourceVersion checkedBorrows;
+    
+    // 修改时间只精确到秒，核对之后同一秒内的修改不会改变最大值；发现变化后的下一次核对再递增一次，
+    // 核对间隔不小于一秒时，下一次核对之后的修改必然落在更晚的一秒
+    private volatile boolean booksUnsettled;
+    private volatile boolean borrowsUnsettled;
+    
+    public ListVersionServiceImpl() {
+        LocalDateTime startTime = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        this.books = new AtomicReference<>(new ResourceVersion(1L, 0L, startTime));
+        this.borrows = new AtomicReference<>(new ResourceVersion(1L, 0L, startTime));
+    }
+    
+    @Override
+    public ResourceVersion getBooksVersion() {
+        return books.get();
+    }
+    
+    @Override
+    public ResourceVersion getBorrowsVersion() {
+        return borrows.get();
+    }
+    
+    @Override
+    public void booksChanged() {
+        advance(books);
+    }
+    
+    @Override
+    public void borrowsChanged() {
+        advance(borrows);
+    }
+    
+    // 本实例的写操作也会使核对结果变化，多递增一次只会让客户端多校验一次
+    @Scheduled(initialDelayString = "${list-version.check-interval-ms:5000}",
+            fixedDelayString = "${list-version.check-interval-ms:5000}")
+    public void checkDatabase() {
+        try {
+            ResourceVersion bookTable = bookRepository.findTableVersion();
+            boolean booksChanged = checkedBooks != null && !checkedBooks.equals(bookTable);
+            if (booksChanged || booksUnsettled) {
+                advance(books);
+            }
+            booksUnsettled = booksChanged;
+            checkedBooks = bookTable;
+            
+            // 借阅列表包含书名和用户姓名，图书和用户的修改时间一并比较
+            ResourceVersion borrowTable = borrowRepository.findTableVersion();
+            ResourceVersion borrowList = new ResourceVersion(borrowTable.getCount(), borrowTable.getVersion(),
+                    borrowTable.getLastModified(), bookTable.getLastModified(), userRepository.findLastUpdateTime());
+            boolean borrowsChanged = checkedBorrows != null && !checkedBorrows.equals(borrowList);
+            if (borrowsChanged || borrowsUnsettled) {
+                advance(borrows);
+            }
+            borrowsUnsettled = borrowsChanged;
+            checkedBorrows = borrowList;
+        } catch (RuntimeException e) {
+            logger.warn("列表校验信息核对失败，下次核对时重试: {}", e.getMessage());
+        }
+    }
+    
+    // 修改时间只增不减，系统时钟回拨时沿用上一次的时间，代数保证ETag仍然变化
+    private static void advance(AtomicReference<ResourceVersion> version) {
+        version.updateAndGet(current -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime modified = now.isAfter(current.getLastModified()) ? now : current.getLastModified();
+            return new ResourceVersion(1L, current.getVersion() + 1, modified);
+        });
+    }
+}
@@ -0,0 +1,420 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.BookAvailabilityDTO;
+import com.example.demo.dto.BookDTO;
+import com.example.demo.dto.BorrowDTO;
+import com.example.demo.dto.response.LiveEvent;
+import com.example.demo.entity.Borrow;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.service.LiveEventService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 实时推送：事件写入固定大小的环形缓冲区，同时放入每个订阅者自己的有界队列，由推送线程池逐个订阅者发送（SSE）。
+// 入队和补发都在缓冲区锁内进行，补发与实时推送之间不会漏发、重复或乱序；同一订阅者同一时刻只有一个线程在发送，
+// 慢连接只占用一个推送线程，队列满或单次发送超时的订阅者断开，客户端带 Last-Event-ID 重连后补发。
+// 最近借阅列表在内存中维护，不再轮询数据库
+@Service
+public class LiveEventServiceImpl implements LiveEventService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(LiveEventServiceImpl.class);
+    
+    private static final int RECENT_BORROWS_SIZE = 10;
+    
+    @Autowired
+    private BorrowRepository borrowRepository;
+    
+    @Value("${live.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
+    
+    @Value("${live.max-subscribers:1000}")
+    private int maxSubscribers;
+    
+    // 每个订阅者最多积压的事件数，超过说明客户端跟不上，断开后由客户端重连补发
+    @Value("${live.subscriber-queue-size:256}")
+    private int subscriberQueueSize;
+    
+    @Value("${live.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+    
+    private final Published[] buffer;
+    // 事件ID从启动时间（毫秒左移10位）开始递增，重启后新进程的ID总是大于上一个进程发出的ID，
+    // 客户端带着旧进程的 Last-Event-ID 重连时落在缓冲区之前，收到 RESET 而不是被当作没有错过事件
+    private final long firstId = System.currentTimeMillis() << 10;
+    private long nextId = firstId;
+    private final ReentrantLock bufferLock = new ReentrantLock();
+    
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    
+    // 任务是“发送某个订阅者队列中的事件”，每个订阅者最多排队一个任务
+    private final ThreadPoolExecutor sender;
+    
+    // 按创建时间倒序的最近借阅
+    private final List<BorrowDTO> recentBorrows = new ArrayList<>(RECENT_BORROWS_SIZE + 1);
+    private final ReentrantLock recentBorrowsLock = new ReentrantLock();
+    
+    private final AtomicLong published = new AtomicLong();
+    // 因订阅者被断开而丢弃的事件数
+    private final AtomicLong dropped = new AtomicLong();
+    // 队列满或发送超时被断开的订阅者数
+    private final AtomicLong evicted = new AtomicLong();
+    // 推送任务队列已满被拒绝的次数，事件仍在订阅者队列中，下次发布或心跳时重新提交
+    private final AtomicLong rejected = new AtomicLong();
+    
+    public LiveEventServiceImpl(@Value("${live.buffer-size:1024}") int bufferSize,
+                                @Value("${live.sender-threads:4}") int senderThreads,
+                                @Value("${live.sender-queue-capacity:1024}") int senderQueueCapacity) {
+        this.buffer = new Published[Math.max(16, bufferSize)];
+        AtomicInteger counter = new AtomicInteger();
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(senderQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "live-events-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.sender.allowCoreThreadTimeOut(true);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reloadRecentBorrows();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+    
+    @Override
+    public void publishBorrow(BorrowDTO borrow) {
+        updateRecentBorrows(borrow);
+        publish(LiveEvent.Type.BORROW, borrow.getBookId(), borrow);
+    }
+    
+    @Override
+    public void publishAvailability(BookDTO book) {
+        publish(LiveEvent.Type.AVAILABILITY, book.getId(), BookAvailabilityDTO.fromDTO(book));
+    }
+    
+    private void publish(LiveEvent.Type type, Long bookId, Object data) {
+        List<Subscriber> ready = new ArrayList<>();
+        List<Subscriber> lagging = new ArrayList<>();
+        bufferLock.lock();
+        try {
+            long id = nextId++;
+            Published event = new Published(new LiveEvent(id, type, LocalDateTime.now(), data), bookId);
+            buffer[(int) (id % buffer.length)] = event;
+            // 入队不阻塞，在锁内完成以保证各订阅者队列中的事件按ID有序
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.accepts(type, bookId)) {
+                    continue;
+                }
+                if (subscriber.queue.offer(event)) {
+                    ready.add(subscriber);
+                } else {
+                    lagging.add(subscriber);
+                }
+            }
+        } finally {
+            bufferLock.unlock();
+        }
+        published.incrementAndGet();
+        lagging.forEach(subscriber -> evict(subscriber, "积压事件过多"));
+        ready.forEach(this::schedule);
+    }
+    
+    @Override
+    public SseEmitter subscribeBorrows(Long lastEventId) {
+        return subscribe(new Subscriber(new SseEmitter(sseTimeoutMs), true, null, subscriberQueueSize), lastEventId);
+    }
+    
+    @Override
+    public SseEmitter subscribeAvailability(Long bookId, Long lastEventId) {
+        return subscribe(new Subscriber(new SseEmitter(sseTimeoutMs), false, bookId, subscriberQueueSize), lastEventId);
+    }
+    
+    private SseEmitter subscribe(Subscriber subscriber, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new RuntimeException("实时推送连接数已达上限，请稍后重试");
+        }
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(error -> close(subscriber));
+        
+        // 补发的事件先放入队列再加入订阅列表，都在缓冲区锁内完成，之后发布的事件排在其后
+        bufferLock.lock();
+        try {
+            if (lastEventId != null) {
+                replay(subscriber, lastEventId);
+            }
+            subscribers.add(subscriber);
+        } finally {
+            bufferLock.unlock();
+        }
+        schedule(subscriber);
+        return emitter;
+    }
+    
+    // 将 lastEventId 之后仍在缓冲区中的事件放入订阅者队列；中间有缺口、超出队列容量，或 lastEventId 不是本进程
+    // 发出的ID（早于本进程第一个事件，或不小于下一个ID）时只放一个 RESET 事件，客户端收到后重新加载完整数据。
+    // 调用方持有缓冲区锁
+    private void replay(Subscriber subscriber, long lastEventId) {
+        long oldest = Math.max(firstId, nextId - buffer.length);
+        List<Published> events = new ArrayList<>();
+        for (long id = Math.max(lastEventId + 1, oldest); id < nextId; id++) {
+            Published event = buffer[(int) (id % buffer.length)];
+            if (subscriber.accepts(event.event.getType(), event.bookId)) {
+                events.add(event);
+            }
+        }
+        if (lastEventId >= nextId || lastEventId + 1 < oldest || events.size() > subscriber.queue.remainingCapacity()) {
+            subscriber.queue.offer(new Published(
+                    new LiveEvent(nextId - 1, LiveEvent.Type.RESET, LocalDateTime.now(), null), null));
+            return;
+        }
+        subscriber.queue.addAll(events);
+    }
+    
+    // 同一订阅者最多提交一个发送任务，任务被拒绝时事件留在队列中等待下次提交
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sender.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.scheduled.set(false);
+            rejected.incrementAndGet();
+        }
+    }
+    
+    private void drain(Subscriber subscriber) {
+        try {
+            Published next;
+            while (!subscriber.closed && (next = subscriber.queue.poll()) != null) {
+                if (next == PING) {
+                    send(subscriber, SseEmitter.event().comment("ping"));
+                } else {
+                    LiveEvent event = next.event;
+                    send(subscriber, SseEmitter.event()
+                            .id(String.valueOf(event.getId()))
+                            .name(event.getType().name())
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+            }
+            // 被断开的订阅者由发送线程结束连接：结束连接与发送使用同一把锁，在发布线程或心跳线程中调用会被卡住的写操作阻塞
+            if (subscriber.closed) {
+                finish(subscriber, null);
+            }
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        // 清除标记后再检查一次，期间入队的事件不会因为没有任务而滞留
+        if (!subscriber.closed && !subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+    
+    // 记录发送开始时间，心跳检查据此断开长时间写不出去的连接；发送失败的订阅者移除
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        subscriber.sendingSince = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            close(subscriber);
+            finish(subscriber, e);
+        } finally {
+            subscriber.sendingSince = 0;
+        }
+    }
+    
+    // 只在发送线程中调用，同一订阅者的发送任务不会并行执行
+    private void finish(Subscriber subscriber, Throwable error) {
+        if (subscriber.finished) {
+            return;
+        }
+        subscriber.finished = true;
+        if (error == null) {
+            subscriber.emitter.complete();
+        } else {
+            subscriber.emitter.completeWithError(error);
+        }
+    }
+    
+    // 定时发送注释行，及时发现断开的连接，也避免代理因空闲关闭连接；同时断开发送超时的订阅者，
+    // 并重新提交此前被拒绝的发送任务。卡住的写操作仍占用一个发送线程，直到连接超时或写入失败
+    @Scheduled(fixedDelayString = "${live.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince;
+            if (since != 0 && now - since > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)) {
+                evict(subscriber, "发送超时");
+                continue;
+            }
+            if (subscriber.queue.isEmpty()) {
+                subscriber.queue.offer(PING);
+            }
+            schedule(subscriber);
+        }
+    }
+    
+    // 断开跟不上的订阅者，不再向其队列放入事件，由发送线程正常结束连接，
+    // 客户端带 Last-Event-ID 重连后补发或收到 RESET
+    private void evict(Subscriber subscriber, String reason) {
+        if (!close(subscriber)) {
+            return;
+        }
+        evicted.incrementAndGet();
+        dropped.addAndGet(subscriber.queue.size());
+        subscriber.queue.clear();
+        logger.debug("断开实时推送订阅: {}", reason);
+        schedule(subscriber);
+    }
+    
+    // 返回是否由本次调用完成关闭
+    private boolean close(Subscriber subscriber) {
+        if (subscriber.closed) {
+            return false;
+        }
+        subscriber.closed = true;
+        return subscribers.remove(subscriber);
+    }
+    
+    @Override
+    public List<BorrowDTO> getRecentBorrows() {
+        recentBorrowsLock.lock();
+        try {
+            return new ArrayList<>(recentBorrows);
+        } finally {
+            recentBorrowsLock.unlock();
+        }
+    }
+    
+    // 启动时和级联删除借阅记录后从数据库加载一次
+    @Override
+    public void reloadRecentBorrows() {
+        List<BorrowDTO> borrows = borrowRepository.findRecentBorrowDTOs(PageRequest.of(0, RECENT_BORROWS_SIZE));
+        recentBorrowsLock.lock();
+        try {
+            recentBorrows.clear();
+            recentBorrows.addAll(borrows);
+        } finally {
+            recentBorrowsLock.unlock();
+        }
+    }
+    
+    // 已在列表中的借阅更新状态，新提交的借阅申请插入到最前面
+    private void updateRecentBorrows(BorrowDTO borrow) {
+        recentBorrowsLock.lock();
+        try {
+            for (int i = 0; i < recentBorrows.size(); i++) {
+                if (recentBorrows.get(i).getId().equals(borrow.getId())) {
+                    recentBorrows.set(i, borrow);
+                    return;
+                }
+            }
+            if (Borrow.Status.PENDING.name().equals(borrow.getStatus())) {
+                recentBorrows.add(0, borrow);
+                if (recentBorrows.size() > RECENT_BORROWS_SIZE) {
+                    recentBorrows.remove(recentBorrows.size() - 1);
+                }
+            }
+        } finally {
+            recentBorrowsLock.unlock();
+        }
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("published", published.get());
+        stats.put("dropped", dropped.get());
+        stats.put("evicted", evicted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("senderThreads", sender.getPoolSize());
+        stats.put("senderQueue", sender.getQueue().size());
+        stats.put("bufferSize", buffer.length);
+        bufferLock.lock();
+        try {
+            stats.put("lastEventId", nextId - 1);
+        } finally {
+            bufferLock.unlock();
+        }
+        return stats;
+    }
+    
+    // 心跳占位，放入订阅者队列后由发送线程写出注释行
+    private static final Published PING = new Published(null, null);
+    
+    private static class Published {
+        private final LiveEvent event;
+        private final Long bookId;
+        
+        Published(LiveEvent event, Long bookId) {
+            this.event = event;
+            this.bookId = bookId;
+        }
+    }
+    
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        // 管理后台订阅全部事件，其余订阅只接收可借数量变化
+        private final boolean borrows;
+        private final Long bookId;
+        private final BlockingQueue<Published> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // 正在进行的发送开始的时间（nanoTime），0 表示空闲
+        private volatile long sendingSince;
+        private volatile boolean closed;
+        // 连接已由发送线程结束，只在发送线程中读写
+        private boolean finished;
+        
+        Subscriber(SseEmitter emitter, boolean borrows, Long bookId, int queueSize) {
+            this.emitter = emitter;
+            this.borrows = borrows;
+            this.bookId = bookId;
+            this.queue = new ArrayBlockingQueue<>(Math.max(16, queueSize));
+        }
+        
+        boolean accepts(LiveEvent.Type type, Long eventBookId) {
+            if (type == LiveEvent.Type.RESET) {
+                return true;
+            }
+            if (type == LiveEvent.Type.BORROW && !borrows) {
+                return false;
+            }
+            return bookId == null || bookId.equals(eventBookId);
+        }
+    }
+}
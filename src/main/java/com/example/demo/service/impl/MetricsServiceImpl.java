@@ -0,0 +1,214 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.service.MetricsService;
+import com.example.demo.util.ConcurrentHistogram;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// 请求、方法、SQL和事务的耗时分布。耗时按微秒记录在对数分桶直方图中，记录时只做几次原子加；
+// 百分位在查询时才计算，没有请求时不产生任何开销
+@Service
+public class MetricsServiceImpl implements MetricsService {
+    
+    // 耗时上限约19小时（微秒），SQL语句数和行数的上限
+    private static final long MAX_MICROS = 1L << 36;
+    private static final long MAX_STATEMENTS = 1L << 20;
+    private static final long MAX_ROWS = 1L << 30;
+    
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    
+    private final ConcurrentHistogram transactions = new ConcurrentHistogram(MAX_MICROS);
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    
+    @Override
+    public void recordRequest(String endpoint, long nanos, int statementCount, long rowCount) {
+        EndpointMetrics metrics = endpoints.computeIfAbsent(endpoint, EndpointMetrics::new);
+        metrics.latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        metrics.statements.record(statementCount);
+        metrics.rows.record(rowCount);
+    }
+    
+    @Override
+    public ConcurrentHistogram methodHistogram(String className, String methodName) {
+        return methods.computeIfAbsent(className + "." + methodName,
+                key -> new MethodMetrics(className, methodName)).latency;
+    }
+    
+    @Override
+    public void recordStatement() {
+        statements.increment();
+    }
+    
+    @Override
+    public void recordRow() {
+        rows.increment();
+    }
+    
+    @Override
+    public void recordTransaction(long nanos, boolean committed) {
+        transactions.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        (committed ? commits : rollbacks).increment();
+    }
+    
+    // 按累计耗时从高到低排列，最耗时的接口和方法排在前面
+    @Override
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> endpointStats = new ArrayList<>();
+        for (EndpointMetrics metrics : sortedBySum(endpoints.values(), metrics -> metrics.latency)) {
+            Map<String, Object> stats = latencyStats(metrics.latency.snapshot());
+            stats.put("endpoint", metrics.endpoint);
+            ConcurrentHistogram.Snapshot statementSnapshot = metrics.statements.snapshot();
+            stats.put("statementsP50", statementSnapshot.valueAt(0.5));
+            stats.put("statementsP99", statementSnapshot.valueAt(0.99));
+            stats.put("statementsMax", statementSnapshot.getMax());
+            ConcurrentHistogram.Snapshot rowSnapshot = metrics.rows.snapshot();
+            stats.put("rowsP50", rowSnapshot.valueAt(0.5));
+            stats.put("rowsP99", rowSnapshot.valueAt(0.99));
+            stats.put("rowsMax", rowSnapshot.getMax());
+            endpointStats.add(stats);
+        }
+        
+        List<Map<String, Object>> methodStats = new ArrayList<>();
+        for (MethodMetrics metrics : sortedBySum(methods.values(), metrics -> metrics.latency)) {
+            Map<String, Object> stats = latencyStats(metrics.latency.snapshot());
+            stats.put("method", metrics.className + "." + metrics.methodName);
+            methodStats.add(stats);
+        }
+        
+        Map<String, Object> jdbc = new LinkedHashMap<>();
+        jdbc.put("statements", statements.sum());
+        jdbc.put("rows", rows.sum());
+        
+        Map<String, Object> transactionStats = latencyStats(transactions.snapshot());
+        transactionStats.put("commits", commits.sum());
+        transactionStats.put("rollbacks", rollbacks.sum());
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("endpoints", endpointStats);
+        stats.put("methods", methodStats);
+        stats.put("jdbc", jdbc);
+        stats.put("transactions", transactionStats);
+        return stats;
+    }
+    
+    private static <T> List<T> sortedBySum(Iterable<T> values, Function<T, ConcurrentHistogram> histogram) {
+        List<T> sorted = new ArrayList<>();
+        values.forEach(sorted::add);
+        sorted.sort(Comparator.comparingLong((T value) -> histogram.apply(value).getSum()).reversed());
+        return sorted;
+    }
+    
+    private static Map<String, Object> latencyStats(ConcurrentHistogram.Snapshot snapshot) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", snapshot.getCount());
+        stats.put("totalMs", snapshot.getSum() / 1000);
+        stats.put("meanMs", snapshot.getMean() / 1000);
+        stats.put("p50Ms", snapshot.valueAt(0.5) / 1000.0);
+        stats.put("p90Ms", snapshot.valueAt(0.9) / 1000.0);
+        stats.put("p99Ms", snapshot.valueAt(0.99) / 1000.0);
+        stats.put("maxMs", snapshot.getMax() / 1000.0);
+        return stats;
+    }
+    
+    @Override
+    public String scrape() {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        
+        out.append("# HELP http_server_requests_seconds 请求处理耗时\n");
+        out.append("# TYPE http_server_requests_seconds summary\n");
+        for (EndpointMetrics metrics : endpoints.values()) {
+            summary(out, "http_server_requests_seconds", metrics.labels, metrics.latency.snapshot(), 1e6);
+        }
+        out.append("# HELP http_server_requests_jdbc_statements 每个请求执行的SQL语句数\n");
+        out.append("# TYPE http_server_requests_jdbc_statements summary\n");
+        for (EndpointMetrics metrics : endpoints.values()) {
+            summary(out, "http_server_requests_jdbc_statements", metrics.labels, metrics.statements.snapshot(), 1);
+        }
+        out.append("# HELP http_server_requests_jdbc_rows 每个请求读取的结果行数\n");
+        out.append("# TYPE http_server_requests_jdbc_rows summary\n");
+        for (EndpointMetrics metrics : endpoints.values()) {
+            summary(out, "http_server_requests_jdbc_rows", metrics.labels, metrics.rows.snapshot(), 1);
+        }
+        
+        out.append("# HELP app_method_seconds 控制器和服务方法耗时\n");
+        out.append("# TYPE app_method_seconds summary\n");
+        for (MethodMetrics metrics : methods.values()) {
+            summary(out, "app_method_seconds", metrics.labels, metrics.latency.snapshot(), 1e6);
+        }
+        
+        out.append("# HELP app_transaction_seconds 数据库事务耗时\n");
+        out.append("# TYPE app_transaction_seconds summary\n");
+        summary(out, "app_transaction_seconds", "", transactions.snapshot(), 1e6);
+        out.append("# TYPE app_transactions_total counter\n");
+        out.append("app_transactions_total{outcome=\"commit\"} ").append(commits.sum()).append('\n');
+        out.append("app_transactions_total{outcome=\"rollback\"} ").append(rollbacks.sum()).append('\n');
+        
+        out.append("# TYPE app_jdbc_statements_total counter\n");
+        out.append("app_jdbc_statements_total ").append(statements.sum()).append('\n');
+        out.append("# TYPE app_jdbc_rows_total counter\n");
+        out.append("app_jdbc_rows_total ").append(rows.sum()).append('\n');
+        return out.toString();
+    }
+    
+    private static void summary(StringBuilder out, String name, String labels,
+                                ConcurrentHistogram.Snapshot snapshot, double divisor) {
+        String separator = labels.isEmpty() ? "" : ",";
+        for (double quantile : QUANTILES) {
+            out.append(name).append('{').append(labels).append(separator)
+                    .append("quantile=\"").append(quantile).append("\"} ")
+                    .append(snapshot.valueAt(quantile) / divisor).append('\n');
+        }
+        String suffix = labels.isEmpty() ? " " : "{" + labels + "} ";
+        out.append(name).append("_sum").append(suffix).append(snapshot.getSum() / divisor).append('\n');
+        out.append(name).append("_count").append(suffix).append(snapshot.getCount()).append('\n');
+    }
+    
+    private static String label(String name, String value) {
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return name + "=\"" + escaped + "\"";
+    }
+    
+    private static class EndpointMetrics {
+        private final String endpoint;
+        private final String labels;
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(MAX_MICROS);
+        private final ConcurrentHistogram statements = new ConcurrentHistogram(MAX_STATEMENTS);
+        private final ConcurrentHistogram rows = new ConcurrentHistogram(MAX_ROWS);
+        
+        EndpointMetrics(String endpoint) {
+            this.endpoint = endpoint;
+            int space = endpoint.indexOf(' ');
+            this.labels = space < 0 ? label("uri", endpoint)
+                    : label("method", endpoint.substring(0, space)) + "," + label("uri", endpoint.substring(space + 1));
+        }
+    }
+    
+    private static class MethodMetrics {
+        private final String className;
+        private final String methodName;
+        private final String labels;
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(MAX_MICROS);
+        
+        MethodMetrics(String className, String methodName) {
+            this.className = className;
+            this.methodName = methodName;
+            this.labels = label("class", className) + "," + label("method", methodName);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.BorrowDTO;
+import com.example.demo.entity.Borrow;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.service.CirculationRollupService;
+import com.example.demo.service.ListVersionService;
+import com.example.demo.service.LiveEventService;
+import com.example.demo.service.OverdueService;
+import com.example.demo.service.StatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 逾期检测：按应还日期分桶保存已批准的借阅，到期后整桶批量改为OVERDUE，不再每次查询时扫描日期
+@Service
+public class OverdueServiceImpl implements OverdueService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OverdueServiceImpl.class);
+    
+    // 每条UPDATE语句最多包含的借阅ID数
+    private static final int UPDATE_BATCH_SIZE = 500;
+    
+    @Autowired
+    private BorrowRepository borrowRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private StatsService statsService;
+    
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+    
+    @Autowired
+    private LiveEventService liveEventService;
+    
+    @Autowired
+    private ListVersionService listVersionService;
+    
+    // 应还日期 -> 借阅ID集合
+    private final ConcurrentNavigableMap<LocalDate, Set<Long>> buckets = new ConcurrentSkipListMap<>();
+    
+    // 借阅ID -> 应还日期，归还时用于从桶中移除
+    private final Map<Long, LocalDate> dueDates = new ConcurrentHashMap<>();
+    
+    private final AtomicLong markedTotal = new AtomicLong();
+    
+    private volatile LocalDate lastRunDate;
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+    
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        
+        // 只追加不清空，重建期间新批准的借阅不会丢失；已归还的记录在更新时按状态条件过滤
+        List<Object[]> loans = borrowRepository.findIdAndDueDateByStatus(Borrow.Status.APPROVED);
+        for (Object[] loan : loans) {
+            track((Long) loan[0], (LocalDate) loan[1]);
+        }
+        
+        logger.info("逾期索引重建完成: {}条借阅, {}个到期日, 耗时{}ms",
+                dueDates.size(), buckets.size(), System.currentTimeMillis() - start);
+        markOverdue();
+    }
+    
+    @Override
+    public void track(Long borrowId, LocalDate dueDate) {
+        LocalDate previous = dueDates.put(borrowId, dueDate);
+        if (previous != null && !previous.equals(dueDate)) {
+            removeFromBucket(previous, borrowId);
+        }
+        buckets.computeIfAbsent(dueDate, date -> ConcurrentHashMap.newKeySet()).add(borrowId);
+    }
+    
+    @Override
+    public void untrack(Long borrowId) {
+        LocalDate dueDate = dueDates.remove(borrowId);
+        if (dueDate != null) {
+            removeFromBucket(dueDate, borrowId);
+        }
+    }
+    
+    // 默认每分钟检查一次，没有到期的桶时只比较一次日期
+    @Scheduled(initialDelayString = "${borrow.overdue.check-interval-ms:60000}",
+            fixedDelayString = "${borrow.overdue.check-interval-ms:60000}")
+    public void scheduledMarkOverdue() {
+        try {
+            markOverdue();
+        } catch (RuntimeException e) {
+            logger.error("逾期状态更新失败，下次检查时重试: {}", e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public int markOverdue() {
+        LocalDate today = LocalDate.now();
+        lastRunDate = today;
+        
+        // 应还日期早于今天的桶全部到期
+        ConcurrentNavigableMap<LocalDate, Set<Long>> expired = buckets.headMap(today);
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        int marked = 0;
+        for (Map.Entry<LocalDate, Set<Long>> bucket : expired.entrySet()) {
+            List<Long> ids = new ArrayList<>(bucket.getValue());
+            for (int from = 0; from < ids.size(); from += UPDATE_BATCH_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + UPDATE_BATCH_SIZE, ids.size()));
+                // 先锁定仍为APPROVED的记录，只更新这些记录，期间已归还或已标记的借阅不受影响；
+                // 计数、流通汇总和推送事件都只来自本次实际变更的记录，同一事务内取出，提交成功后才上报
+                List<Object[]> books = new ArrayList<>();
+                List<BorrowDTO> events = new ArrayList<>();
+                transaction.executeWithoutResult(status -> {
+                    List<Long> approved = borrowRepository.findIdsByIdInAndStatusForUpdate(
+                            chunk, Borrow.Status.APPROVED);
+                    if (approved.isEmpty()) {
+                        return;
+                    }
+                    borrowRepository.updateStatusByIdIn(approved, List.of(Borrow.Status.APPROVED), Borrow.Status.OVERDUE);
+                    books.addAll(borrowRepository.findBookIdAndCategoryByIdInAndStatus(approved, Borrow.Status.OVERDUE));
+                    events.addAll(borrowRepository.findBorrowDTOsByIdInAndStatus(approved, Borrow.Status.OVERDUE));
+                });
+                int count = books.size();
+                marked += count;
+                if (count > 0) {
+                    statsService.recordBorrowTransition(Borrow.Status.APPROVED, Borrow.Status.OVERDUE, count);
+                    for (Object[] book : books) {
+                        circulationRollupService.record(Borrow.Status.OVERDUE, (Long) book[0], (String) book[1], 0);
+                    }
+                    listVersionService.borrowsChanged();
+                    events.forEach(liveEventService::publishBorrow);
+                }
+                
+                // 逐个移除已处理的ID，处理期间新加入同一桶的借阅留到下次检查；失败时未处理的ID保留重试
+                for (Long id : chunk) {
+                    dueDates.remove(id, bucket.getKey());
+                    removeFromBucket(bucket.getKey(), id);
+                }
+            }
+        }
+        
+        markedTotal.addAndGet(marked);
+        if (marked > 0) {
+            logger.info("已将{}条借阅标记为逾期", marked);
+        }
+        return marked;
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tracked", dueDates.size());
+        stats.put("buckets", buckets.size());
+        stats.put("nextDueDate", buckets.isEmpty() ? null : buckets.firstKey());
+        stats.put("markedTotal", markedTotal.get());
+        stats.put("lastRunDate", lastRunDate);
+        return stats;
+    }
+    
+    private void removeFromBucket(LocalDate dueDate, Long borrowId) {
+        buckets.computeIfPresent(dueDate, (date, ids) -> {
+            ids.remove(borrowId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.dto.PopularBookDTO;
+import com.example.demo.entity.Borrow;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.service.BookCacheService;
+import com.example.demo.service.PopularBookService;
+import com.example.demo.util.SpaceSaving;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 热门图书：每天一个 Space-Saving 统计，查询时合并窗口内的各天得到排行，内存占用只与容量和天数有关。
+// 排行结果缓存到下一次借阅事件或日期变化，首页访问不查询数据库
+@Service
+public class PopularBookServiceImpl implements PopularBookService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PopularBookServiceImpl.class);
+    
+    private static final int WEEK_DAYS = 7;
+    private static final int MONTH_DAYS = 30;
+    private static final int TRENDING_DAYS = 2;
+    private static final int BASELINE_DAYS = 28;
+    
+    // 保留的天数，覆盖最长的窗口
+    private static final int RETAINED_DAYS = Math.max(MONTH_DAYS, TRENDING_DAYS + BASELINE_DAYS);
+    
+    // 排行最多保留的条数，多出的部分用于跳过已删除的图书
+    private static final int MAX_LIMIT = 50;
+    private static final int RANKING_SIZE = MAX_LIMIT * 2;
+    
+    // 已离开APPROVED状态的借出记录，重建时按借阅日期统计
+    private static final List<Borrow.Status> BORROWED_STATUSES =
+            List.of(Borrow.Status.OVERDUE, Borrow.Status.RETURNED);
+    
+    @Autowired
+    private BorrowRepository borrowRepository;
+    
+    @Autowired
+    private BookCacheService bookCacheService;
+    
+    private final int capacity;
+    
+    // 日期 -> 当天借出（批准）次数
+    private final ConcurrentNavigableMap<LocalDate, SpaceSaving> borrowed = new ConcurrentSkipListMap<>();
+    
+    // 日期 -> 当天借阅申请次数
+    private final ConcurrentNavigableMap<LocalDate, SpaceSaving> requested = new ConcurrentSkipListMap<>();
+    
+    // 每次记录事件递增，排行缓存据此判断是否过期
+    private final AtomicLong events = new AtomicLong();
+    
+    private final Map<PopularBookDTO.Window, Ranking> rankings = new ConcurrentHashMap<>();
+    
+    public PopularBookServiceImpl(@Value("${book.popular.capacity:1000}") int capacity) {
+        this.capacity = capacity;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+    
+    @Override
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDate since = LocalDate.now().minusDays(RETAINED_DAYS - 1);
+        
+        // 数据库按图书和日期汇总后再写入，启动时读取的行数与借阅总量无关
+        List<Object[]> requests = borrowRepository.countRequestsByBookAndDateSince(since.atStartOfDay());
+        for (Object[] row : requests) {
+            bucket(requested, (LocalDate) row[1]).offer((Long) row[0], ((Number) row[2]).longValue());
+        }
+        // 实时统计按批准当天计入，重建时仍为APPROVED的借阅同样按批准时间（更新时间）分桶，重启后排名不会变化
+        List<Object[]> borrows = new ArrayList<>(borrowRepository.countApprovedByBookAndDateSince(since.atStartOfDay()));
+        borrows.addAll(borrowRepository.countBorrowsByBookAndDateSince(since, BORROWED_STATUSES));
+        for (Object[] row : borrows) {
+            bucket(borrowed, (LocalDate) row[1]).offer((Long) row[0], ((Number) row[2]).longValue());
+        }
+        events.incrementAndGet();
+        
+        logger.info("热门图书统计重建完成: 申请{}组, 借出{}组, 耗时{}ms",
+                requests.size(), borrows.size(), System.currentTimeMillis() - start);
+    }
+    
+    @Override
+    public void recordRequest(Long bookId) {
+        bucket(requested, LocalDate.now()).offer(bookId, 1);
+        events.incrementAndGet();
+    }
+    
+    @Override
+    public void recordBorrow(Long bookId) {
+        bucket(borrowed, LocalDate.now()).offer(bookId, 1);
+        events.incrementAndGet();
+    }
+    
+    private SpaceSaving bucket(ConcurrentNavigableMap<LocalDate, SpaceSaving> buckets, LocalDate date) {
+        return buckets.computeIfAbsent(date, key -> new SpaceSaving(capacity));
+    }
+    
+    // 每天清理超出保留期的统计
+    @Scheduled(cron = "${book.popular.purge-cron:0 5 0 * * *}")
+    public void purgeExpired() {
+        LocalDate before = LocalDate.now().minusDays(RETAINED_DAYS - 1);
+        borrowed.headMap(before).clear();
+        requested.headMap(before).clear();
+        rankings.clear();
+    }
+    
+    @Override
+    public List<PopularBookDTO> getPopularBooks(PopularBookDTO.Window window, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_LIMIT));
+        LocalDate today = LocalDate.now();
+        long version = events.get();
+        
+        Ranking ranking = rankings.get(window);
+        if (ranking == null || ranking.version != version || !ranking.date.equals(today)) {
+            ranking = rank(window, today, version);
+            rankings.put(window, ranking);
+        }
+        
+        // 图书信息从图书缓存读取，已删除的图书跳过
+        List<PopularBookDTO> result = new ArrayList<>(size);
+        for (RankedBook ranked : ranking.books) {
+            if (result.size() >= size) {
+                break;
+            }
+            bookCacheService.findBookDTO(ranked.bookId)
+                    .ifPresent(book -> result.add(new PopularBookDTO(book, ranked.count, ranked.score)));
+        }
+        return result;
+    }
+    
+    private Ranking rank(PopularBookDTO.Window window, LocalDate today, long version) {
+        List<RankedBook> books = new ArrayList<>();
+        if (window == PopularBookDTO.Window.TRENDING) {
+            // 近期申请次数减去按基线期日均推算的预期次数，只保留明显上升的图书
+            Map<Long, Long> recent = merge(requested, today.minusDays(TRENDING_DAYS - 1), today);
+            Map<Long, Long> baseline = merge(requested, today.minusDays(TRENDING_DAYS + BASELINE_DAYS - 1),
+                    today.minusDays(TRENDING_DAYS));
+            recent.forEach((bookId, count) -> {
+                double expected = baseline.getOrDefault(bookId, 0L) * (double) TRENDING_DAYS / BASELINE_DAYS;
+                if (count > expected) {
+                    books.add(new RankedBook(bookId, count, count - expected));
+                }
+            });
+        } else {
+            int days = window == PopularBookDTO.Window.WEEK ? WEEK_DAYS : MONTH_DAYS;
+            merge(borrowed, today.minusDays(days - 1), today)
+                    .forEach((bookId, count) -> books.add(new RankedBook(bookId, count, count)));
+        }
+        
+        books.sort(Comparator.comparingDouble((RankedBook book) -> book.score).reversed()
+                .thenComparingLong(book -> book.bookId));
+        return new Ranking(version, today, new ArrayList<>(books.subList(0, Math.min(RANKING_SIZE, books.size()))));
+    }
+    
+    private static Map<Long, Long> merge(ConcurrentNavigableMap<LocalDate, SpaceSaving> buckets,
+                                         LocalDate from, LocalDate to) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (SpaceSaving bucket : buckets.subMap(from, true, to, true).values()) {
+            bucket.addTo(counts);
+        }
+        return counts;
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("borrowedDays", borrowed.size());
+        stats.put("requestedDays", requested.size());
+        SpaceSaving borrowedToday = borrowed.get(LocalDate.now());
+        SpaceSaving requestedToday = requested.get(LocalDate.now());
+        stats.put("borrowedToday", borrowedToday == null ? 0 : borrowedToday.getTotal());
+        stats.put("requestedToday", requestedToday == null ? 0 : requestedToday.getTotal());
+        stats.put("events", events.get());
+        return stats;
+    }
+    
+    private static class RankedBook {
+        private final long bookId;
+        private final long count;
+        private final double score;
+        
+        RankedBook(long bookId, long count, double score) {
+            this.bookId = bookId;
+            this.count = count;
+            this.score = score;
+        }
+    }
+    
+    private static class Ranking {
+        private final long version;
+        private final LocalDate date;
+        private final List<RankedBook> books;
+        
+        Ranking(long version, LocalDate date, List<RankedBook> books) {
+            this.version = version;
+            this.date = date;
+            this.books = books;
+        }
+    }
+}
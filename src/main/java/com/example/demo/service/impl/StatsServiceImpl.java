@@ -0,0 +1,248 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.Borrow;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.StatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 管理后台统计：各服务在状态变化提交后更新内存计数，统计接口直接读取内存；
+// 定时按数据库聚合结果校准，修正级联删除等未经过服务层的变化
+@Service
+public class StatsServiceImpl implements StatsService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(StatsServiceImpl.class);
+    
+    // 校准期间有计数变化时重新查询的次数，超过后仍以数据库结果为准
+    private static final int MAX_RECONCILE_ATTEMPTS = 3;
+    
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private BorrowRepository borrowRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final Map<Borrow.Status, AtomicLong> borrowsByStatus = new EnumMap<>(Borrow.Status.class);
+    
+    private final Map<String, CategoryCounters> categories = new ConcurrentHashMap<>();
+    
+    private final AtomicLong users = new AtomicLong();
+    
+    // 每次计数变化递增，校准时用于判断查询期间是否有并发修改
+    private final AtomicLong modifications = new AtomicLong();
+    
+    private final AtomicLong corrections = new AtomicLong();
+    
+    private volatile LocalDateTime reconciledAt;
+    
+    public StatsServiceImpl() {
+        // 状态集合固定，初始化后只读，并发访问安全
+        for (Borrow.Status status : Borrow.Status.values()) {
+            borrowsByStatus.put(status, new AtomicLong());
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+    }
+    
+    @Scheduled(initialDelayString = "${stats.reconcile-interval-ms:300000}",
+            fixedDelayString = "${stats.reconcile-interval-ms:300000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            logger.error("统计计数校准失败，下次校准时重试: {}", e.getMessage(), e);
+        }
+    }
+    
+    @Override
+    public void recordBorrowTransition(Borrow.Status from, Borrow.Status to, long count) {
+        if (count == 0) {
+            return;
+        }
+        modifications.incrementAndGet();
+        if (from != null) {
+            borrowsByStatus.get(from).addAndGet(-count);
+        }
+        if (to != null) {
+            borrowsByStatus.get(to).addAndGet(count);
+        }
+    }
+    
+    @Override
+    public void recordBorrowsRemoved(List<Object[]> statusCounts) {
+        for (Object[] row : statusCounts) {
+            recordBorrowTransition((Borrow.Status) row[0], null, ((Number) row[1]).longValue());
+        }
+    }
+    
+    @Override
+    public void recordBookChange(String category, long books, long totalCopies, long availableCopies) {
+        if (category == null || (books == 0 && totalCopies == 0 && availableCopies == 0)) {
+            return;
+        }
+        modifications.incrementAndGet();
+        CategoryCounters counters = categories.computeIfAbsent(category, key -> new CategoryCounters());
+        counters.books.addAndGet(books);
+        counters.totalCopies.addAndGet(totalCopies);
+        counters.availableCopies.addAndGet(availableCopies);
+    }
+    
+    @Override
+    public void recordUserChange(long count) {
+        modifications.incrementAndGet();
+        users.addAndGet(count);
+    }
+    
+    @Override
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        // 三个聚合查询读取同一个快照
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        
+        Snapshot snapshot;
+        int attempts = 0;
+        long generation;
+        do {
+            generation = modifications.get();
+            snapshot = transaction.execute(status -> new Snapshot(
+                    borrowRepository.countGroupByStatus(),
+                    bookRepository.countGroupByCategory(),
+                    userRepository.count()));
+            attempts++;
+        } while (modifications.get() != generation && attempts < MAX_RECONCILE_ATTEMPTS);
+        
+        long drift = apply(snapshot);
+        corrections.addAndGet(drift);
+        reconciledAt = LocalDateTime.now();
+        if (drift > 0) {
+            logger.warn("统计计数已按数据库校准，偏差{}，查询{}次", drift, attempts);
+        }
+        logger.debug("统计计数校准完成，耗时{}ms", System.currentTimeMillis() - start);
+    }
+    
+    // 用快照覆盖内存计数，返回各计数偏差的绝对值之和
+    private long apply(Snapshot snapshot) {
+        long drift = 0;
+        for (Map.Entry<Borrow.Status, AtomicLong> entry : borrowsByStatus.entrySet()) {
+            long actual = snapshot.borrows.getOrDefault(entry.getKey(), 0L);
+            drift += Math.abs(entry.getValue().getAndSet(actual) - actual);
+        }
+        
+        for (Map.Entry<String, long[]> entry : snapshot.categories.entrySet()) {
+            CategoryCounters counters = categories.computeIfAbsent(entry.getKey(), key -> new CategoryCounters());
+            long[] actual = entry.getValue();
+            drift += Math.abs(counters.books.getAndSet(actual[0]) - actual[0]);
+            drift += Math.abs(counters.totalCopies.getAndSet(actual[1]) - actual[1]);
+            drift += Math.abs(counters.availableCopies.getAndSet(actual[2]) - actual[2]);
+        }
+        for (Map.Entry<String, CategoryCounters> entry : categories.entrySet()) {
+            if (!snapshot.categories.containsKey(entry.getKey())) {
+                CategoryCounters counters = entry.getValue();
+                drift += Math.abs(counters.books.getAndSet(0)) + Math.abs(counters.totalCopies.getAndSet(0))
+                        + Math.abs(counters.availableCopies.getAndSet(0));
+            }
+        }
+        
+        drift += Math.abs(users.getAndSet(snapshot.users) - snapshot.users);
+        return drift;
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Long> borrows = new LinkedHashMap<>();
+        long totalBorrows = 0;
+        for (Map.Entry<Borrow.Status, AtomicLong> entry : borrowsByStatus.entrySet()) {
+            long count = entry.getValue().get();
+            borrows.put(entry.getKey().name(), count);
+            totalBorrows += count;
+        }
+        
+        // 按分类名排序，计数为0的分类（已删光）不返回
+        Map<String, Map<String, Long>> byCategory = new TreeMap<>();
+        long totalBooks = 0;
+        long totalCopies = 0;
+        long availableCopies = 0;
+        for (Map.Entry<String, CategoryCounters> entry : categories.entrySet()) {
+            CategoryCounters counters = entry.getValue();
+            long books = counters.books.get();
+            if (books <= 0) {
+                continue;
+            }
+            Map<String, Long> category = new LinkedHashMap<>();
+            category.put("books", books);
+            category.put("totalCopies", counters.totalCopies.get());
+            category.put("availableCopies", counters.availableCopies.get());
+            byCategory.put(entry.getKey(), category);
+            totalBooks += books;
+            totalCopies += counters.totalCopies.get();
+            availableCopies += counters.availableCopies.get();
+        }
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalBooks", totalBooks);
+        stats.put("totalUsers", users.get());
+        stats.put("totalBorrows", totalBorrows);
+        stats.put("pendingBorrows", borrows.get(Borrow.Status.PENDING.name()));
+        stats.put("totalCopies", totalCopies);
+        stats.put("availableCopies", availableCopies);
+        stats.put("borrowsByStatus", borrows);
+        stats.put("categories", byCategory);
+        stats.put("reconciledAt", reconciledAt);
+        stats.put("corrections", corrections.get());
+        return stats;
+    }
+    
+    private static class CategoryCounters {
+        private final AtomicLong books = new AtomicLong();
+        private final AtomicLong totalCopies = new AtomicLong();
+        private final AtomicLong availableCopies = new AtomicLong();
+    }
+    
+    private static class Snapshot {
+        private final Map<Borrow.Status, Long> borrows = new EnumMap<>(Borrow.Status.class);
+        private final Map<String, long[]> categories = new HashMap<>();
+        private final long users;
+        
+        Snapshot(List<Object[]> borrowCounts, List<Object[]> categoryCounts, long users) {
+            for (Object[] row : borrowCounts) {
+                borrows.put((Borrow.Status) row[0], ((Number) row[1]).longValue());
+            }
+            for (Object[] row : categoryCounts) {
+                categories.put((String) row[0], new long[]{
+                        ((Number) row[1]).longValue(), ((Number) row[2]).longValue(), ((Number) row[3]).longValue()});
+            }
+            this.users = users;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.entity.TokenRevocation;
+import com.example.demo.repository.TokenRevocationRepository;
+import com.example.demo.service.TokenRevocationService;
+import com.example.demo.util.LongExpiryTable;
+import com.example.demo.util.TransactionUtils;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// 令牌吊销：按令牌ID吊销单个令牌（退出登录），按用户设置“不早于”时间吊销其全部令牌（强制下线）。
+// 吊销记录持久化到数据库，内存中用开放寻址表保存，鉴权时的检查不加锁、不创建对象
+@Service
+public class TokenRevocationServiceImpl implements TokenRevocationService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationServiceImpl.class);
+    
+    @Autowired
+    private TokenRevocationRepository tokenRevocationRepository;
+    
+    @Value("${jwt.expiration}")
+    private long jwtExpirationMs;
+    
+    private final SecureRandom random = new SecureRandom();
+    
+    // 用户ID -> 签发时间早于该值（秒）的令牌无效
+    private final LongExpiryTable users = new LongExpiryTable(1024);
+    
+    // 令牌ID -> 令牌过期时间（秒）
+    private final LongExpiryTable tokens = new LongExpiryTable(1024);
+    
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    
+    @PostConstruct
+    public void load() {
+        List<TokenRevocation> revocations = tokenRevocationRepository.findByExpiresAtAfter(LocalDateTime.now());
+        for (TokenRevocation revocation : revocations) {
+            long expiresAt = toEpochSecond(revocation.getExpiresAt());
+            if (revocation.getType() == TokenRevocation.Type.USER) {
+                users.put(revocation.getSubject(), revocation.getNotBefore(), expiresAt);
+            } else {
+                tokens.put(revocation.getSubject(), expiresAt, expiresAt);
+            }
+        }
+        logger.info("已加载令牌吊销记录: 用户{}条, 令牌{}条", users.size(), tokens.size());
+    }
+    
+    @Override
+    public boolean isRevoked(long userId, long issuedAt, String tokenId) {
+        checks.increment();
+        if (issuedAt < users.get(userId) || (tokenId != null && tokens.get(parseTokenId(tokenId)) != 0)) {
+            rejections.increment();
+            return true;
+        }
+        return false;
+    }
+    
+    // 吊销记录在调用方的事务中持久化，与用户的修改一起提交或回滚；提交后再写入内存表生效
+    @Override
+    @Transactional
+    public void revokeToken(String tokenId, long expiresAt) {
+        long id = parseTokenId(tokenId);
+        if (id == 0 || expiresAt <= Instant.now().getEpochSecond()) {
+            return;
+        }
+        
+        tokenRevocationRepository.save(new TokenRevocation(null, TokenRevocation.Type.TOKEN, id, null,
+                toLocalDateTime(expiresAt), null));
+        TransactionUtils.afterCommit(() -> tokens.put(id, expiresAt, expiresAt));
+    }
+    
+    @Override
+    @Transactional
+    public void revokeUser(Long userId) {
+        // 令牌签发时间精度为秒，同一秒内签发的旧令牌也要失效，新令牌的签发时间不会早于该值
+        long notBefore = Instant.now().getEpochSecond() + 1;
+        long expiresAt = notBefore + jwtExpirationMs / 1000 + 1;
+        
+        tokenRevocationRepository.save(new TokenRevocation(null, TokenRevocation.Type.USER, userId, notBefore,
+                toLocalDateTime(expiresAt), null));
+        TransactionUtils.afterCommit(() -> {
+            users.put(userId, notBefore, expiresAt);
+            logger.info("用户 {} 的全部令牌已吊销", userId);
+        });
+    }
+    
+    @Override
+    public long getNotBefore(Long userId) {
+        return userId == null ? 0 : users.get(userId);
+    }
+    
+    // 64位随机数的十六进制表示，检查时可以直接还原成long
+    @Override
+    public String newTokenId() {
+        long id;
+        do {
+            id = random.nextLong();
+        } while (id == 0);
+        return Long.toHexString(id);
+    }
+    
+    // 吊销记录在相关令牌全部过期后清理
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        long now = Instant.now().getEpochSecond();
+        int purged = users.purge(now) + tokens.purge(now);
+        int deleted = tokenRevocationRepository.deleteExpired(LocalDateTime.now());
+        if (purged > 0 || deleted > 0) {
+            logger.info("清理过期吊销记录: 内存{}条, 数据库{}条", purged, deleted);
+        }
+    }
+    
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("revokedUsers", users.size());
+        stats.put("revokedTokens", tokens.size());
+        stats.put("checks", checks.sum());
+        stats.put("rejections", rejections.sum());
+        return stats;
+    }
+    
+    private static long parseTokenId(String tokenId) {
+        try {
+            return Long.parseUnsignedLong(tokenId, 16);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+    
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault());
+    }
+}
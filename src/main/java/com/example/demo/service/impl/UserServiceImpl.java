@@ -3,8 +3,15 @@ package com.example.demo.service.impl;
 import com.example.demo.dto.UserDTO;
 import com.example.demo.dto.request.RegisterRequest;
 import com.example.demo.entity.User;
+import com.example.demo.repository.BorrowRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.UserDetailsServiceImpl;
+import com.example.demo.service.ListVersionService;
+import com.example.demo.service.LiveEventService;
+import com.example.demo.service.StatsService;
+import com.example.demo.service.TokenRevocationService;
 import com.example.demo.service.UserService;
+import com.example.demo.util.TransactionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,6 +30,24 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    @Autowired
+    private BorrowRepository borrowRepository;
+    
+    @Autowired
+    private StatsService statsService;
+    
+    @Autowired
+    private LiveEventService liveEventService;
+    
+    @Autowired
+    private ListVersionService listVersionService;
+    
     @Override
     @Transactional
     public User registerUser(RegisterRequest registerRequest) {
@@ -41,7 +66,9 @@ public class UserServiceImpl implements UserService {
         user.setRole(User.Role.READER); // 默认为读者角色
         user.setStatus(User.Status.ACTIVE); // 默认为激活状态
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        TransactionUtils.afterCommit(() -> statsService.recordUserChange(1));
+        return saved;
     }
     
     @Override
@@ -67,6 +94,7 @@ public class UserServiceImpl implements UserService {
     @Transactional
     public UserDTO updateUser(Long id, RegisterRequest registerRequest) {
         User user = findById(id);
+        String oldUsername = user.getUsername();
         
         // 如果更改了用户名，检查新用户名是否已存在
         if (!user.getUsername().equals(registerRequest.getUsername()) &&
@@ -75,21 +103,57 @@ public class UserServiceImpl implements UserService {
         }
         
         user.setUsername(registerRequest.getUsername());
-        if (registerRequest.getPassword() != null && !registerRequest.getPassword().isEmpty()) {
+        boolean passwordChanged = registerRequest.getPassword() != null && !registerRequest.getPassword().isEmpty();
+        if (passwordChanged) {
             user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
         }
         user.setName(registerRequest.getName());
         user.setEmail(registerRequest.getEmail());
         user.setPhone(registerRequest.getPhone());
         
-        return UserDTO.fromEntity(userRepository.save(user));
+        User saved = userRepository.save(user);
+        // 令牌中带有用户名，改名或改密码后旧令牌全部失效；吊销记录随本事务提交
+        if (passwordChanged || !oldUsername.equals(saved.getUsername())) {
+            tokenRevocationService.revokeUser(id);
+        }
+        TransactionUtils.afterCommit(() -> {
+            userDetailsService.invalidate(oldUsername);
+            userDetailsService.invalidate(saved.getUsername());
+            // 借阅列表中带有用户名和姓名
+            listVersionService.borrowsChanged();
+        });
+        return UserDTO.fromEntity(saved);
+    }
+    
+    @Override
+    @Transactional
+    public UserDTO updateUserStatus(Long id, User.Status status) {
+        User user = findById(id);
+        user.setStatus(status);
+        
+        User saved = userRepository.save(user);
+        if (status == User.Status.INACTIVE) {
+            tokenRevocationService.revokeUser(id);
+        }
+        TransactionUtils.afterCommit(() -> userDetailsService.invalidate(saved.getUsername()));
+        return UserDTO.fromEntity(saved);
     }
     
     @Override
     @Transactional
     public void deleteUser(Long id) {
         User user = findById(id);
+        // 借阅记录随用户级联删除，删除前统计各状态数量
+        List<Object[]> removedBorrows = borrowRepository.countByUserIdGroupByStatus(id);
         userRepository.delete(user);
+        tokenRevocationService.revokeUser(id);
+        TransactionUtils.afterCommit(() -> {
+            userDetailsService.invalidate(user.getUsername());
+            statsService.recordUserChange(-1);
+            statsService.recordBorrowsRemoved(removedBorrows);
+            listVersionService.borrowsChanged();
+            liveEventService.reloadRecentBorrows();
+        });
     }
     
     @Override
@@ -0,0 +1,36 @@
+package com.example.demo.util;
+
+import com.example.demo.dto.ResourceVersion;
+import com.example.demo.dto.response.ApiResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// 条件GET：先比较 If-None-Match / If-Modified-Since，未变化时直接返回304，不加载也不序列化响应体
+public final class ConditionalResponses {
+    
+    // 浏览器可以缓存，但每次使用前都要带校验头重新验证
+    public static final CacheControl PUBLIC = CacheControl.noCache();
+    
+    // 与用户相关的数据只允许浏览器缓存，不允许共享缓存
+    public static final CacheControl PRIVATE = CacheControl.noCache().cachePrivate();
+    
+    // 内容写入后不再变化的资源（UUID命名的上传文件），有效期内浏览器和CDN无需重新验证
+    public static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    
+    private ConditionalResponses() {
+    }
+    
+    public static <T> ResponseEntity<ApiResponse<T>> respond(WebRequest request, ResourceVersion version, boolean weak,
+                                                             CacheControl cacheControl, Supplier<T> body) {
+        // 记录不存在或列表为空时不做校验，交给正常流程处理；checkNotModified 会同时在响应中写入ETag和Last-Modified
+        if (version.exists() && request.checkNotModified(version.toETag(weak), version.toLastModified())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).body(ApiResponse.success(body.get()));
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.demo.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+
+// 逐行写出导出数据，只持有一个固定大小的缓冲区，内存占用与数据量无关
+public abstract class ExportWriter<T> implements Closeable {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+    // 与 ApiResponse 相同的结构，data 为逐行写出的数组，供列表接口直接返回
+    public static final String JSON = "json";
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportWriter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String JSON_SUCCESS_TAIL = ",\"success\":true,\"message\":\"操作成功\"}";
+    private static final String JSON_FAILURE_MESSAGE = "读取数据失败，列表不完整";
+    private static final String JSON_FAILURE_TAIL = ",\"success\":false,\"message\":\"" + JSON_FAILURE_MESSAGE + "\"}";
+    private static final String JSON_FAILURE_DOCUMENT =
+            "{\"success\":false,\"message\":\"" + JSON_FAILURE_MESSAGE + "\",\"data\":null}";
+
+    protected final Writer writer;
+
+    protected ExportWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public static <T> ExportWriter<T> of(String format, OutputStream outputStream,
+                                         Map<String, Function<T, Object>> columns, ObjectMapper objectMapper) throws IOException {
+        if (CSV.equalsIgnoreCase(format)) {
+            return new CsvExportWriter<>(outputStream, columns);
+        }
+        if (NDJSON.equalsIgnoreCase(format)) {
+            return new NdjsonExportWriter<>(outputStream, objectMapper);
+        }
+        if (JSON.equalsIgnoreCase(format)) {
+            return new JsonExportWriter<>(outputStream, objectMapper);
+        }
+        throw new RuntimeException("不支持的导出格式: " + format);
+    }
+
+    public static ResponseEntity<StreamingResponseBody> response(String fileName, String format, StreamingResponseBody body) {
+        MediaType contentType;
+        if (CSV.equalsIgnoreCase(format)) {
+            contentType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+        } else if (NDJSON.equalsIgnoreCase(format)) {
+            contentType = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        } else if (JSON.equalsIgnoreCase(format)) {
+            // 普通接口响应，不作为附件下载
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(jsonBody(fileName, body));
+        } else {
+            throw new RuntimeException("不支持的导出格式: " + format);
+        }
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + fileName + "." + format.toLowerCase() + "\"")
+                .body(body);
+    }
+
+    // JSON列表在 data 数组之后补上 success 和 message。状态码和响应头在读取游标之前已经发出，
+    // 中途读取失败时以 success=false 结束文档，客户端收到的仍是完整的 ApiResponse 结构，而不是截断的200响应。
+    // 写出失败（客户端断开）时无法再补写，异常照常抛出
+    private static StreamingResponseBody jsonBody(String name, StreamingResponseBody body) {
+        return outputStream -> {
+            WrittenOutputStream out = new WrittenOutputStream(outputStream);
+            try {
+                body.writeTo(out);
+            } catch (RuntimeException e) {
+                logger.error("列表 {} 读取失败，已以失败结果结束响应: {}", name, e.getMessage(), e);
+                outputStream.write((out.written ? JSON_FAILURE_TAIL : JSON_FAILURE_DOCUMENT).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            outputStream.write(JSON_SUCCESS_TAIL.getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    public abstract void write(T row) throws IOException;
+
+    // 只刷新缓冲区，输出流由容器关闭
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    // 记录是否已有内容写出，决定失败时补写结尾还是写出完整的失败结果
+    private static class WrittenOutputStream extends FilterOutputStream {
+
+        private boolean written;
+
+        WrittenOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            written = true;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            written |= len > 0;
+            out.write(b, off, len);
+        }
+
+        // 输出流由容器关闭
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    private static class CsvExportWriter<T> extends ExportWriter<T> {
+
+        private final Map<String, Function<T, Object>> columns;
+
+        CsvExportWriter(OutputStream outputStream, Map<String, Function<T, Object>> columns) throws IOException {
+            super(outputStream);
+            this.columns = columns;
+            writeLine(columns.keySet());
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            boolean first = true;
+            for (Function<T, Object> column : columns.values()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                Object value = column.apply(row);
+                writeField(value == null ? "" : value.toString());
+                first = false;
+            }
+            writer.write('\n');
+        }
+
+        private void writeLine(Iterable<String> fields) throws IOException {
+            boolean first = true;
+            for (String field : fields) {
+                if (!first) {
+                    writer.write(',');
+                }
+                writeField(field);
+                first = false;
+            }
+            writer.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static class NdjsonExportWriter<T> extends ExportWriter<T> {
+
+        private final ObjectWriter objectWriter;
+
+        NdjsonExportWriter(OutputStream outputStream, ObjectMapper objectMapper) {
+            super(outputStream);
+            this.objectWriter = objectMapper.writer();
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            writer.write(objectWriter.writeValueAsString(row));
+            writer.write('\n');
+        }
+    }
+
+    // 只写出 {"data":[...]，success 和 message 由 response 返回的响应体在读取结束后补上
+    private static class JsonExportWriter<T> extends ExportWriter<T> {
+
+        private final JsonGenerator generator;
+        private final ObjectWriter objectWriter;
+
+        JsonExportWriter(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+            super(outputStream);
+            // 每行写完不刷新，由缓冲区攒满后再写出；关闭生成器时不关闭输出流，也不自动补全外层对象
+            this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.generator = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("data");
+        }
+
+        @Override
+        public void write(T row) throws IOException {
+            objectWriter.writeValue(generator, row);
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeEndArray();
+            generator.close();
+            super.close();
+        }
+    }
+}
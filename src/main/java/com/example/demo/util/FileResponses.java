@@ -0,0 +1,132 @@
+package com.example.demo.util;
+
+import com.example.demo.dto.StoredFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// 静态文件响应：条件请求返回304，支持单段Range；内容优先由调用方从内存缓存写出，
+// 否则交给Tomcat用sendfile发送，不经过应用内存
+public final class FileResponses {
+
+    // Tomcat 的 sendfile 请求属性（与 DefaultServlet 使用的相同）
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 小文件直接写出比注册sendfile更快，阈值与 DefaultServlet 的默认值一致
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+
+    private FileResponses() {
+    }
+
+    public static void send(HttpServletRequest request, HttpServletResponse response, StoredFile file,
+                            CacheControl cacheControl) throws IOException {
+        send(request, response, file, cacheControl, null);
+    }
+
+    public static void send(HttpServletRequest request, HttpServletResponse response, StoredFile file,
+                            CacheControl cacheControl, Body cached) throws IOException {
+        String etag = file.toETag();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // checkNotModified 会写入ETag和Last-Modified，未变化时设置304状态
+        if (new ServletWebRequest(request, response).checkNotModified(etag, file.getLastModified())) {
+            return;
+        }
+
+        long size = file.getSize();
+        long start = 0;
+        long end = size - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && size > 0 && ifRangeMatches(request, etag, file.getLastModified())) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(range);
+                // 多段范围很少使用，按完整文件返回
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(size);
+                    end = ranges.get(0).getRangeEnd(size);
+                    // 起始位置不小于文件长度时 HttpRange 不报错，结束位置会小于起始位置
+                    if (start > end) {
+                        throw new IllegalArgumentException("范围起始位置超出文件长度");
+                    }
+                    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+                }
+            } catch (IllegalArgumentException ex) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        long length = end - start + 1;
+        response.setContentType(file.getContentType().toString());
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getFileName() + "\"");
+        if (length <= 0 || HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        if (cached != null && cached.write(start, end, response.getOutputStream())) {
+            return;
+        }
+
+        if (length >= SENDFILE_THRESHOLD && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        // 不支持sendfile的容器或小文件：由文件通道直接写入响应流
+        try (FileChannel channel = FileChannel.open(file.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position <= end) {
+                long written = channel.transferTo(position, end + 1 - position, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+            }
+        }
+    }
+
+    // 从缓存写出 [start, end] 范围的内容，未缓存时返回false
+    @FunctionalInterface
+    public interface Body {
+        boolean write(long start, long end, OutputStream out) throws IOException;
+    }
+
+    // 没有 If-Range 或校验值仍然匹配时才按Range返回，否则返回完整的新内容
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            // HTTP日期精确到秒
+            return lastModified / 1000 == request.getDateHeader(HttpHeaders.IF_RANGE) / 1000;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+}
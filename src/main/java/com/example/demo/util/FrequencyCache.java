@@ -0,0 +1,151 @@
+package com.example.demo.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 容量有限的LRU缓存，满了以后用频率草图决定是否接纳新条目（TinyLFU），
+// 避免一次性扫描把热点条目挤出缓存；可选按写入时间过期
+public class FrequencyCache<K, V> {
+
+    private final int maximumSize;
+    private final long expireAfterWriteNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final FrequencySketch sketch;
+    // 用显式锁而不是 synchronized：虚拟线程等待锁时会让出载体线程（JDK 21 中 synchronized 会固定载体线程）
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public FrequencyCache(int maximumSize) {
+        this(maximumSize, Duration.ZERO);
+    }
+
+    // expireAfterWrite 为0时条目不过期
+    public FrequencyCache(int maximumSize, Duration expireAfterWrite) {
+        this.maximumSize = Math.max(1, maximumSize);
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(this.maximumSize);
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Entry<V> entry = entries.get(key);
+            if (entry != null && entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            Entry<V> entry = new Entry<>(value, expireAfterWriteNanos > 0 ? now + expireAfterWriteNanos : 0);
+            if (entries.containsKey(key) || entries.size() < maximumSize) {
+                entries.put(key, entry);
+                return;
+            }
+
+            // 最久未使用的条目已过期时直接替换
+            Map.Entry<K, Entry<V>> eldest = entries.entrySet().iterator().next();
+            if (eldest.getValue().isExpired(now)) {
+                entries.remove(eldest.getKey());
+                expirations.increment();
+                entries.put(key, entry);
+                return;
+            }
+
+            // 与最久未使用的条目比较访问频率，新条目更热才替换
+            Iterator<K> iterator = entries.keySet().iterator();
+            K victim = iterator.next();
+            if (sketch.frequency(key) <= sketch.frequency(victim)) {
+                rejections.increment();
+                return;
+            }
+            iterator.remove();
+            evictions.increment();
+            entries.put(key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maximumSize", maximumSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("evictions", evictions.sum());
+        stats.put("rejections", rejections.sum());
+        stats.put("expirations", expirations.sum());
+        return stats;
+    }
+
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.BeanWrapperImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "\u0000";
+
+    private String sortKey;
+    private boolean ascending;
+    private Class<?> valueType;
+    private Comparable<?> lastValue;
+    private Long lastId;
+
+    // 有游标时从游标恢复排序和位置，否则从第一页开始；排序字段必须在白名单内
+    public static KeysetCursor resolve(String token, String sortBy, String direction, Map<String, Class<?>> sortKeys) {
+        if (token == null || token.isEmpty()) {
+            Class<?> valueType = sortKeys.get(sortBy);
+            if (valueType == null) {
+                throw new RuntimeException("不支持的排序字段: " + sortBy);
+            }
+            return new KeysetCursor(sortBy, !"desc".equalsIgnoreCase(direction), valueType, null, null);
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR, 4);
+            Class<?> valueType = sortKeys.get(parts[0]);
+            if (parts.length != 4 || valueType == null) {
+                throw new IllegalArgumentException(decoded);
+            }
+            return new KeysetCursor(parts[0], "a".equals(parts[1]), valueType,
+                    parseValue(valueType, parts[3]), Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("无效的分页游标");
+        }
+    }
+
+    public boolean isFirstPage() {
+        return lastId == null;
+    }
+
+    // 以当前页最后一条记录生成下一页游标
+    public String next(Object lastEntity) {
+        BeanWrapperImpl wrapper = new BeanWrapperImpl(lastEntity);
+        Object value = wrapper.getPropertyValue(sortKey);
+        Object id = wrapper.getPropertyValue("id");
+        String raw = sortKey + SEPARATOR + (ascending ? "a" : "d") + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Comparable<?> parseValue(Class<?> valueType, String raw) {
+        if (valueType == Long.class) {
+            return Long.valueOf(raw);
+        }
+        if (valueType == Integer.class) {
+            return Integer.valueOf(raw);
+        }
+        if (valueType == LocalDateTime.class) {
+            return LocalDateTime.parse(raw);
+        }
+        if (valueType == LocalDate.class) {
+            return LocalDate.parse(raw);
+        }
+        return raw;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// long -> long 的开放寻址哈希表，适合写少读多的场景：
+// 读操作无锁、不创建对象，写操作加锁；条目带过期时间，由 purge 重建时清理。键不能为0
+public class LongExpiryTable {
+
+    private static final long EMPTY = 0L;
+
+    private volatile Table table;
+    private int size;
+    // 只有写操作使用
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public LongExpiryTable(int initialCapacity) {
+        this.table = new Table(tableSizeFor(initialCapacity));
+    }
+
+    // 不存在时返回0
+    public long get(long key) {
+        return table.get(key);
+    }
+
+    // 同一个键重复写入时保留较大的值和较晚的过期时间
+    public void put(long key, long value, long expiresAt) {
+        lock.lock();
+        try {
+            if (key == EMPTY) {
+                throw new IllegalArgumentException("key不能为0");
+            }
+            Table current = table;
+            int index = current.indexOf(key);
+            if (current.keys.get(index) == key) {
+                current.values.set(index, Math.max(value, current.values.get(index)));
+                current.expiries.set(index, Math.max(expiresAt, current.expiries.get(index)));
+                return;
+            }
+
+            // 装载因子超过一半时扩容，保证探测链较短
+            if ((size + 1) * 2 > current.capacity()) {
+                current = resize(current.capacity() * 2, Long.MIN_VALUE);
+                index = current.indexOf(key);
+            }
+            // 先写值再写键，读线程看到键时一定能看到对应的值
+            current.values.set(index, value);
+            current.expiries.set(index, expiresAt);
+            current.keys.set(index, key);
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 移除过期条目，返回移除的数量
+    public int purge(long now) {
+        lock.lock();
+        try {
+            int before = size;
+            Table current = table;
+            int capacity = current.capacity();
+            while (capacity > 16 && (before * 4) < capacity) {
+                capacity >>>= 1;
+            }
+            resize(capacity, now);
+            return before - size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 重建表并原子替换，读线程始终看到完整的表
+    private Table resize(int capacity, long now) {
+        Table current = table;
+        Table rebuilt = new Table(tableSizeFor(capacity));
+        int count = 0;
+        for (int i = 0; i < current.capacity(); i++) {
+            long key = current.keys.get(i);
+            if (key == EMPTY || current.expiries.get(i) <= now) {
+                continue;
+            }
+            int index = rebuilt.indexOf(key);
+            rebuilt.values.set(index, current.values.get(i));
+            rebuilt.expiries.set(index, current.expiries.get(i));
+            rebuilt.keys.set(index, key);
+            count++;
+        }
+        size = count;
+        table = rebuilt;
+        return rebuilt;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        return Math.max(16, size);
+    }
+
+    private static class Table {
+        private final AtomicLongArray keys;
+        private final AtomicLongArray values;
+        private final AtomicLongArray expiries;
+        private final int mask;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicLongArray(capacity);
+            this.expiries = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+
+        long get(long key) {
+            int index = hash(key) & mask;
+            while (true) {
+                long current = keys.get(index);
+                if (current == key) {
+                    return values.get(index);
+                }
+                if (current == EMPTY) {
+                    return 0L;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        // 返回键所在位置，不存在时返回可插入的空位置
+        int indexOf(long key) {
+            int index = hash(key) & mask;
+            while (true) {
+                long current = keys.get(index);
+                if (current == key || current == EMPTY) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
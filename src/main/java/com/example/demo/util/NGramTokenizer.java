@@ -0,0 +1,89 @@
+package com.example.demo.util;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+public final class NGramTokenizer {
+
+    // 字母数字片段使用的gram长度
+    private static final int ALNUM_MIN_GRAM = 2;
+    private static final int ALNUM_MAX_GRAM = 3;
+
+    private NGramTokenizer() {
+    }
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // 索引时使用：中日韩字符按单字和二元组切分，字母数字按2-gram和3-gram切分
+    public static Set<String> indexGrams(String normalizedText) {
+        Set<String> grams = new LinkedHashSet<>();
+        forEachRun(normalizedText, (text, start, end, cjk) -> {
+            if (cjk) {
+                for (int i = start; i < end; i++) {
+                    grams.add(text.substring(i, i + 1));
+                    if (i + 2 <= end) {
+                        grams.add(text.substring(i, i + 2));
+                    }
+                }
+            } else {
+                for (int n = ALNUM_MIN_GRAM; n <= ALNUM_MAX_GRAM; n++) {
+                    for (int i = start; i + n <= end; i++) {
+                        grams.add(text.substring(i, i + n));
+                    }
+                }
+            }
+        });
+        return grams;
+    }
+
+    // 查询时使用：每个片段取能用到的最长gram，包含关键字的文档一定包含这些gram
+    // 返回空集合表示关键字无法通过索引缩小范围
+    public static Set<String> queryGrams(String normalizedKeyword) {
+        Set<String> grams = new LinkedHashSet<>();
+        forEachRun(normalizedKeyword, (text, start, end, cjk) -> {
+            int length = end - start;
+            int n = cjk ? Math.min(2, length) : Math.min(ALNUM_MAX_GRAM, length);
+            if (!cjk && n < ALNUM_MIN_GRAM) {
+                return;
+            }
+            for (int i = start; i + n <= end; i++) {
+                grams.add(text.substring(i, i + n));
+            }
+        });
+        return grams;
+    }
+
+    private static void forEachRun(String text, RunConsumer consumer) {
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                i++;
+                continue;
+            }
+            boolean cjk = isCjk(c);
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i)) && isCjk(text.charAt(i)) == cjk) {
+                i++;
+            }
+            consumer.accept(text, start, i, cjk);
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    @FunctionalInterface
+    private interface RunConsumer {
+        void accept(String text, int start, int end, boolean cjk);
+    }
+}
@@ -0,0 +1,284 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// 堆外字节缓存：启动时一次分配直接内存并切成固定大小的块，每个条目占用若干块，不占用Java堆也不产生GC压力。
+// 按访问顺序淘汰；空间不足时用频率草图比较新条目和最久未使用的条目，新条目更热才替换（TinyLFU）。
+// 读取方通过 acquire/release 引用条目，被淘汰的条目等最后一个读取方释放后才回收其内存块
+public class OffHeapByteCache {
+
+    // 单个直接缓冲区的上限，预算更大时分成多个
+    private static final int MAX_ARENA_BYTES = 1 << 30;
+
+    private final int blockSize;
+    private final int blocksPerArena;
+    private final ByteBuffer[] arenas;
+    private final long maxEntryBytes;
+
+    // 空闲块编号栈
+    private final int[] freeBlocks;
+    private int freeCount;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long usedBytes;
+    // 保护索引、空闲块栈和引用计数；读取文件和写出响应都在锁外进行
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OffHeapByteCache(long capacityBytes, int blockSize, long maxEntryBytes) {
+        this.blockSize = Math.max(1024, blockSize);
+        this.blocksPerArena = MAX_ARENA_BYTES / this.blockSize;
+        int totalBlocks = (int) Math.min(Integer.MAX_VALUE, Math.max(1, capacityBytes / this.blockSize));
+        this.maxEntryBytes = Math.min(maxEntryBytes, (long) totalBlocks * this.blockSize);
+
+        int arenaCount = (totalBlocks + blocksPerArena - 1) / blocksPerArena;
+        this.arenas = new ByteBuffer[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            int blocks = Math.min(blocksPerArena, totalBlocks - i * blocksPerArena);
+            arenas[i] = ByteBuffer.allocateDirect(blocks * this.blockSize);
+        }
+
+        this.freeBlocks = new int[totalBlocks];
+        for (int i = 0; i < totalBlocks; i++) {
+            freeBlocks[i] = totalBlocks - 1 - i;
+        }
+        this.freeCount = totalBlocks;
+        this.sketch = new FrequencySketch(totalBlocks);
+    }
+
+    // 命中时增加引用计数，使用完必须调用 release；未命中返回null
+    public Entry acquire(String key) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            entry.references++;
+            hits.increment();
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(Entry entry) {
+        lock.lock();
+        try {
+            if (--entry.references == 0 && entry.removed) {
+                free(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 把文件读入缓存并返回已引用的条目；文件过大、空间不足且新条目不比淘汰对象更热时返回null
+    public Entry load(String key, Path path, long size) throws IOException {
+        if (size <= 0 || size > maxEntryBytes) {
+            return null;
+        }
+        int needed = (int) ((size + blockSize - 1) / blockSize);
+
+        Entry entry;
+        lock.lock();
+        try {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                existing.references++;
+                return existing;
+            }
+            int[] blocks = reserve(key, needed);
+            if (blocks == null) {
+                rejections.increment();
+                return null;
+            }
+            // 填充期间只有当前线程持有该条目，填充完成后再放入索引
+            entry = new Entry(blocks, size);
+            entry.references = 1;
+        } finally {
+            lock.unlock();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = 0;
+            for (int block : entry.blocks) {
+                ByteBuffer buffer = slice(block, (int) Math.min(blockSize, size - position));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("文件长度小于预期: " + path);
+                    }
+                }
+                position += buffer.capacity();
+            }
+        } catch (IOException | RuntimeException e) {
+            lock.lock();
+            try {
+                free(entry);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            Entry existing = entries.get(key);
+            if (existing != null) {
+                // 并发加载了同一文件，保留先放入的条目
+                free(entry);
+                existing.references++;
+                return existing;
+            }
+            entries.put(key, entry);
+            usedBytes += size;
+            admissions.increment();
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 空闲块不足时按LRU顺序淘汰，每个淘汰对象都要比新条目更冷；新条目不够热时不淘汰任何条目
+    private int[] reserve(String key, int needed) {
+        if (freeCount < needed) {
+            int candidateFrequency = sketch.frequency(key);
+            int reclaimable = freeCount;
+            List<String> victims = new ArrayList<>();
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (reclaimable < needed && iterator.hasNext()) {
+                Map.Entry<String, Entry> victim = iterator.next();
+                if (sketch.frequency(victim.getKey()) >= candidateFrequency) {
+                    return null;
+                }
+                // 仍被读取的条目暂时无法回收
+                if (victim.getValue().references == 0) {
+                    reclaimable += victim.getValue().blocks.length;
+                }
+                victims.add(victim.getKey());
+            }
+            if (reclaimable < needed) {
+                return null;
+            }
+            for (String victim : victims) {
+                remove(victim);
+                evictions.increment();
+            }
+        }
+        int[] blocks = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            blocks[i] = freeBlocks[--freeCount];
+        }
+        return blocks;
+    }
+
+    public void invalidate(String key) {
+        lock.lock();
+        try {
+            remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+        usedBytes -= entry.size;
+        entry.removed = true;
+        if (entry.references == 0) {
+            free(entry);
+        }
+    }
+
+    private void free(Entry entry) {
+        for (int block : entry.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    // 把条目中 [start, end] 范围的字节写入通道，调用方须持有该条目的引用
+    public void write(Entry entry, long start, long end, WritableByteChannel out) throws IOException {
+        long position = start;
+        while (position <= end) {
+            int index = (int) (position / blockSize);
+            int offset = (int) (position % blockSize);
+            int length = (int) Math.min(blockSize - offset, end + 1 - position);
+            ByteBuffer buffer = slice(entry.blocks[index], offset + length);
+            buffer.position(offset);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            position += length;
+        }
+    }
+
+    private ByteBuffer slice(int block, int length) {
+        int offset = (block % blocksPerArena) * blockSize;
+        return arenas[block / blocksPerArena].slice(offset, length);
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("entries", entries.size());
+            stats.put("usedBytes", usedBytes);
+            stats.put("freeBytes", (long) freeCount * blockSize);
+        } finally {
+            lock.unlock();
+        }
+        stats.put("capacityBytes", (long) freeBlocks.length * blockSize);
+        stats.put("blockSize", blockSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("admissions", admissions.sum());
+        stats.put("rejections", rejections.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    public static class Entry {
+        private final int[] blocks;
+        private final long size;
+        // 以下字段由缓存的锁保护
+        private int references;
+        private boolean removed;
+
+        Entry(int[] blocks, long size) {
+            this.blocks = blocks;
+            this.size = size;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
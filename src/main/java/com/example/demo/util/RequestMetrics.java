@@ -0,0 +1,44 @@
+package com.example.demo.util;
+
+// 当前请求执行的SQL语句数和读取的行数，由请求过滤器开始和结束，JDBC包装层累加；
+// 不在请求中的线程（定时任务、流式导出）没有当前对象，只计入全局统计
+public final class RequestMetrics {
+
+    private static final ThreadLocal<RequestMetrics> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+    private long rows;
+
+    private RequestMetrics() {
+    }
+
+    public static RequestMetrics begin() {
+        RequestMetrics metrics = new RequestMetrics();
+        CURRENT.set(metrics);
+        return metrics;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    public static RequestMetrics current() {
+        return CURRENT.get();
+    }
+
+    public void statementExecuted() {
+        statements++;
+    }
+
+    public void rowFetched() {
+        rows++;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+}
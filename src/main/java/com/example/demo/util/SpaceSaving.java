@@ -0,0 +1,126 @@
+package com.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Space-Saving 频繁项统计：最多保存 capacity 个计数器，满了以后新键接替计数最小的计数器并继承其计数。
+// 计数只会偏大，偏大量不超过 error；真实次数超过 总次数/capacity 的键一定会被保留
+public class SpaceSaving {
+
+    private static final Comparator<Counter> ORDER = Comparator.comparingLong((Counter counter) -> counter.count)
+            .thenComparingLong(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+    // 按计数升序，第一个即为替换对象
+    private final TreeSet<Counter> ordered = new TreeSet<>(ORDER);
+    private long total;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public SpaceSaving(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.counters = new HashMap<>(this.capacity * 2);
+    }
+
+    public void offer(long key, long weight) {
+        lock.lock();
+        try {
+            total += weight;
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                ordered.remove(counter);
+                counter.count += weight;
+                ordered.add(counter);
+                return;
+            }
+
+            if (counters.size() < capacity) {
+                counter = new Counter(key, weight, 0);
+            } else {
+                Counter min = ordered.pollFirst();
+                counters.remove(min.key);
+                counter = new Counter(key, min.count + weight, min.count);
+            }
+            counters.put(key, counter);
+            ordered.add(counter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 把计数累加到 target 中，用于合并多个时间段
+    public void addTo(Map<Long, Long> target) {
+        lock.lock();
+        try {
+            for (Counter counter : counters.values()) {
+                target.merge(counter.key, counter.count, Long::sum);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 计数最大的 k 个，按计数降序
+    public List<Counter> top(int k) {
+        lock.lock();
+        try {
+            List<Counter> result = new ArrayList<>(Math.min(k, counters.size()));
+            Iterator<Counter> iterator = ordered.descendingIterator();
+            while (iterator.hasNext() && result.size() < k) {
+                Counter counter = iterator.next();
+                result.add(new Counter(counter.key, counter.count, counter.error));
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getTotal() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return counters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public static class Counter {
+        private final long key;
+        private long count;
+        private final long error;
+
+        Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
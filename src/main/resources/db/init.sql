@@ -9,6 +9,7 @@ CREATE DATABASE IF NOT EXISTS library_management DEFAULT CHARACTER SET utf8 COLL
 USE library_management;
 
 -- 删除已存在的表（如果存在）以避免冲突
+DROP TABLE IF EXISTS borrow_rollups;   -- 由借阅记录汇总而来，随借阅表一起重建
 DROP TABLE IF EXISTS borrow_records;  -- 先删除引用其他表的表
 DROP TABLE IF EXISTS borrows;         -- 先删除引用其他表的表
 DROP TABLE IF EXISTS books;           -- 然后删除被引用的表
@@ -25,7 +26,9 @@ CREATE TABLE IF NOT EXISTS users (
     role ENUM('ADMIN', 'READER') NOT NULL,
     status ENUM('ACTIVE', 'INACTIVE') NOT NULL,
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    -- 列表校验信息定时核对最后修改时间，MAX只读索引一端
+    INDEX idx_users_update_time (update_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci;
 
 -- 创建图书表
@@ -44,7 +47,13 @@ CREATE TABLE IF NOT EXISTS books (
     total_copies INT NOT NULL,
     available_copies INT NOT NULL,
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
+    -- 游标分页按 (排序列, id) 定位，索引列与排序一致时每页只读取一页的行；isbn 的唯一索引已包含主键
+    INDEX idx_books_create_time (create_time, id),
+    INDEX idx_books_title (title, id),
+    -- 列表校验信息定时核对记录数和最后修改时间，两者都只读这个索引
+    INDEX idx_books_update_time (update_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
 -- 创建借阅表
@@ -58,10 +67,41 @@ CREATE TABLE IF NOT EXISTS borrows (
     status ENUM('PENDING', 'APPROVED', 'REJECTED', 'RETURNED', 'OVERDUE') NOT NULL,
     create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
+    INDEX idx_borrows_status_due_date (status, due_date),
+    INDEX idx_borrows_create_time (create_time),
+    -- 游标分页可按借阅日期、应还日期排序；上面的 (status, due_date) 只用于按状态筛选
+    INDEX idx_borrows_borrow_date (borrow_date, id),
+    INDEX idx_borrows_due_date (due_date, id),
+    INDEX idx_borrows_update_time (update_time),
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
     FOREIGN KEY (book_id) REFERENCES books(id) ON DELETE CASCADE
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8;
 
+-- 创建流通汇总表：按小时/天、全部/分类/图书、事件状态累计借阅事件数
+CREATE TABLE IF NOT EXISTS borrow_rollups (
+    granularity ENUM('HOUR', 'DAY') NOT NULL,
+    bucket_start DATETIME NOT NULL,
+    dimension ENUM('ALL', 'CATEGORY', 'BOOK') NOT NULL,
+    dimension_key VARCHAR(64) NOT NULL,
+    status ENUM('PENDING', 'APPROVED', 'REJECTED', 'RETURNED', 'OVERDUE') NOT NULL,
+    event_count BIGINT NOT NULL DEFAULT 0,
+    loan_days BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (granularity, dimension, bucket_start, dimension_key, status),
+    INDEX idx_borrow_rollups_key (granularity, dimension, dimension_key, bucket_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+-- 创建令牌吊销表（不随初始化删除，重启后吊销仍然有效）
+CREATE TABLE IF NOT EXISTS token_revocations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    type ENUM('TOKEN', 'USER') NOT NULL,
+    subject BIGINT NOT NULL,
+    not_before BIGINT,
+    expires_at TIMESTAMP NOT NULL,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_token_revocations_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
 -- 插入管理员用户（密码：admin123）
 INSERT INTO users (username, password, name, email, role, status)
 VALUES ('admin', 'admin123', '管理员', 'admin@example.com', 'ADMIN', 'ACTIVE');
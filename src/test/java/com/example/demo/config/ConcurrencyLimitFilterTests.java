@@ -0,0 +1,52 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ConcurrencyLimitFilterTests {
+
+    private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(true, 2, 0, List.of());
+
+    @Test
+    void syncRequestReleasesOnReturn() throws Exception {
+        filter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> assertEquals(1, inFlight()));
+
+        assertEquals(0, inFlight());
+    }
+
+    @Test
+    void asyncRequestHoldsPermitUntilComplete() throws Exception {
+        MockHttpServletRequest request = request();
+        request.setAsyncSupported(true);
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertEquals(1, inFlight());
+
+        // 超时后容器还会触发完成事件，名额只释放一次
+        MockAsyncContext context = (MockAsyncContext) request.getAsyncContext();
+        context.getListeners().forEach(listener -> {
+            try {
+                listener.onTimeout(null);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        context.complete();
+
+        assertEquals(0, inFlight());
+    }
+
+    private MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/books/export");
+    }
+
+    private int inFlight() {
+        return ((Number) filter.getStats().get("inFlight")).intValue();
+    }
+}
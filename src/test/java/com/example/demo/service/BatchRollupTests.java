@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Book;
+import com.example.demo.entity.Borrow;
+import com.example.demo.entity.User;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 批量操作的提交回调只在事务提交后执行，测试不加 @Transactional，每条用例使用新的图书
+@SpringBootTest
+@ActiveProfiles("test")
+class BatchRollupTests {
+
+    private static final int LOAN_DAYS = 10;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private CirculationRollupService circulationRollupService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRepository borrowRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Book book;
+    private List<Long> borrowIds;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime() % 1_000_000_000L);
+
+        User user = new User();
+        user.setUsername("br" + suffix);
+        user.setPassword("password");
+        user.setName("汇总测试");
+        user.setRole(User.Role.READER);
+        user.setStatus(User.Status.ACTIVE);
+        userRepository.save(user);
+
+        book = new Book();
+        book.setIsbn("BR" + suffix);
+        book.setTitle("汇总测试图书");
+        book.setAuthor("作者");
+        book.setCategory("测试");
+        book.setStatus(Book.Status.AVAILABLE);
+        book.setTotalCopies(5);
+        book.setAvailableCopies(5);
+        bookRepository.save(book);
+
+        borrowIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Borrow borrow = new Borrow();
+            borrow.setUser(user);
+            borrow.setBook(book);
+            borrow.setBorrowDate(LocalDate.now().minusDays(LOAN_DAYS));
+            borrow.setDueDate(LocalDate.now().plusDays(20));
+            borrow.setStatus(Borrow.Status.PENDING);
+            borrowIds.add(borrowRepository.save(borrow).getId());
+        }
+    }
+
+    @Test
+    void batchApproveRecordsNoLoanDays() {
+        borrowService.approveBorrows(borrowIds);
+        circulationRollupService.flush();
+
+        assertEquals(Map.of("events", 2L, "loanDays", 0L), rollup(Borrow.Status.APPROVED));
+    }
+
+    @Test
+    void batchRejectRecordsNoLoanDays() {
+        borrowService.rejectBorrows(borrowIds);
+        circulationRollupService.flush();
+
+        assertEquals(Map.of("events", 2L, "loanDays", 0L), rollup(Borrow.Status.REJECTED));
+    }
+
+    @Test
+    void batchReturnRecordsLoanDays() {
+        borrowService.approveBorrows(borrowIds);
+        borrowService.returnBooks(borrowIds);
+        circulationRollupService.flush();
+
+        assertEquals(Map.of("events", 2L, "loanDays", 2L * LOAN_DAYS), rollup(Borrow.Status.RETURNED));
+    }
+
+    // 本用例图书的按天汇总，返回事件数和借阅天数之和
+    private Map<String, Long> rollup(Borrow.Status status) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(event_count), 0), COALESCE(SUM(loan_days), 0) FROM borrow_rollups " +
+                        "WHERE granularity = 'DAY' AND dimension = 'BOOK' AND dimension_key = ? AND status = ?",
+                (rs, rowNum) -> Map.of("events", rs.getLong(1), "loanDays", rs.getLong(2)),
+                book.getId().toString(), status.name());
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Book;
+import com.example.demo.entity.Borrow;
+import com.example.demo.entity.User;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.repository.BorrowRepository;
+import com.example.demo.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import(BorrowListingQueryCountTests.StreamingFetchSizeConfig.class)
+@Transactional
+class BorrowListingQueryCountTests {
+
+    private static final int BORROW_COUNT = 30;
+
+    @Autowired
+    private BorrowService borrowService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowRepository borrowRepository;
+
+    @Autowired
+    private LiveEventService liveEventService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    private final List<Long> borrowIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String suffix = String.valueOf(System.nanoTime() % 1_000_000_000L);
+
+        User user = new User();
+        user.setUsername("qc" + suffix);
+        user.setPassword("password");
+        user.setName("查询计数");
+        user.setRole(User.Role.READER);
+        user.setStatus(User.Status.ACTIVE);
+        userRepository.save(user);
+
+        // 每条借阅对应不同的图书，逐行加载关联时语句数会随页大小增长
+        for (int i = 0; i < BORROW_COUNT; i++) {
+            Book book = new Book();
+            book.setIsbn("QC" + suffix + i);
+            book.setTitle("查询计数图书" + i);
+            book.setAuthor("作者");
+            book.setCategory("测试");
+            book.setStatus(Book.Status.AVAILABLE);
+            book.setTotalCopies(1);
+            book.setAvailableCopies(1);
+            bookRepository.save(book);
+
+            Borrow borrow = new Borrow();
+            borrow.setUser(user);
+            borrow.setBook(book);
+            borrow.setBorrowDate(LocalDate.now());
+            borrow.setDueDate(LocalDate.now().plusDays(30));
+            borrow.setStatus(Borrow.Status.PENDING);
+            borrowIds.add(borrowRepository.save(borrow).getId());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findAllBorrowsStatementCountIsIndependentOfPageSize() {
+        long small = statementsFor(() -> borrowService.findAllBorrows(PageRequest.of(0, 5)));
+        long large = statementsFor(() -> borrowService.findAllBorrows(PageRequest.of(0, 25)));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void findBorrowsByStatusStatementCountIsIndependentOfPageSize() {
+        long small = statementsFor(() -> borrowService.findBorrowsByStatus(Borrow.Status.PENDING, PageRequest.of(0, 5)));
+        long large = statementsFor(() -> borrowService.findBorrowsByStatus(Borrow.Status.PENDING, PageRequest.of(0, 25)));
+
+        assertEquals(small, large);
+    }
+
+    @Test
+    void overdueListStatementCountIsIndependentOfRowCount() {
+        markOverdue(5);
+        long few = statementsFor(this::exportOverdue);
+        markOverdue(BORROW_COUNT);
+        long many = statementsFor(this::exportOverdue);
+
+        assertEquals(few, many);
+    }
+
+    @Test
+    void recentBorrowsStatementCountIsIndependentOfListSize() {
+        long small = statementsFor(() -> borrowRepository.findRecentBorrowDTOs(PageRequest.of(0, 5)));
+        long large = statementsFor(() -> borrowRepository.findRecentBorrowDTOs(PageRequest.of(0, 25)));
+        long reload = statementsFor(liveEventService::reloadRecentBorrows);
+
+        assertEquals(small, large);
+        assertEquals(small, reload);
+    }
+
+    // 前 count 条借阅改为已逾期，其余保持待审批
+    private void markOverdue(int count) {
+        borrowRepository.updateStatusByIdIn(borrowIds, List.of(Borrow.Status.OVERDUE), Borrow.Status.PENDING);
+        borrowRepository.updateStatusByIdIn(borrowIds.subList(0, count), List.of(Borrow.Status.PENDING),
+                Borrow.Status.OVERDUE);
+    }
+
+    private void exportOverdue() {
+        try {
+            borrowService.exportOverdueBooks(new ByteArrayOutputStream(), "json");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long statementsFor(Runnable listing) {
+        entityManager.clear();
+        statistics.clear();
+        listing.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    // 流式查询的 Integer.MIN_VALUE 抓取大小是MySQL驱动逐行读取的约定，H2不接受负数；
+    // 测试中忽略负的抓取大小，其余调用原样转发
+    @TestConfiguration
+    static class StreamingFetchSizeConfig {
+
+        @Bean
+        static BeanPostProcessor ignoreStreamingFetchSize() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof DataSource dataSource)) {
+                        return bean;
+                    }
+                    return new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return proxy(Connection.class, super.getConnection());
+                        }
+                    };
+                }
+            };
+        }
+
+        private static <T> T proxy(Class<T> type, Object target) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (method.getName().equals("setFetchSize") && (Integer) args[0] < 0) {
+                    return null;
+                }
+                Object result;
+                try {
+                    result = method.invoke(target, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                    return proxy(method.getReturnType().asSubclass(Statement.class), result);
+                }
+                return result;
+            }));
+        }
+    }
+}
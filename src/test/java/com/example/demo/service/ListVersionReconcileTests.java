@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Book;
+import com.example.demo.repository.BookRepository;
+import com.example.demo.service.impl.ListVersionServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 定时核对改为手动调用，模拟其他实例直接在数据库中的修改
+@SpringBootTest(properties = "list-version.check-interval-ms=3600000")
+@ActiveProfiles("test")
+class ListVersionReconcileTests {
+
+    @Autowired
+    private ListVersionServiceImpl listVersionService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void externalUpdateAdvancesOnThisAndNextCheck() {
+        String suffix = String.valueOf(System.nanoTime() % 1_000_000_000L);
+        Book book = new Book();
+        book.setIsbn("LV" + suffix);
+        book.setTitle("核对测试图书");
+        book.setAuthor("作者");
+        book.setCategory("测试");
+        book.setStatus(Book.Status.AVAILABLE);
+        book.setTotalCopies(1);
+        book.setAvailableCopies(1);
+        bookRepository.save(book);
+
+        listVersionService.checkDatabase();
+        listVersionService.checkDatabase();
+        long settled = listVersionService.getBooksVersion().getVersion();
+
+        jdbcTemplate.update("UPDATE books SET title = ?, update_time = DATEADD('YEAR', 1, CURRENT_TIMESTAMP) WHERE id = ?",
+                "核对测试图书（改）", book.getId());
+
+        listVersionService.checkDatabase();
+        assertEquals(settled + 1, listVersionService.getBooksVersion().getVersion());
+
+        // 同一秒内可能还有未反映到最大修改时间的修改，下一次核对再递增一次，之后不再变化
+        listVersionService.checkDatabase();
+        assertEquals(settled + 2, listVersionService.getBooksVersion().getVersion());
+        listVersionService.checkDatabase();
+        assertEquals(settled + 2, listVersionService.getBooksVersion().getVersion());
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentHistogramTests {
+
+    @Test
+    void smallValuesAreExact() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(1_000_000);
+        for (int value = 1; value <= 20; value++) {
+            histogram.record(value);
+        }
+
+        ConcurrentHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(20, snapshot.getCount());
+        assertEquals(210, snapshot.getSum());
+        assertEquals(10.5, snapshot.getMean());
+        assertEquals(10, snapshot.valueAt(0.5));
+        assertEquals(19, snapshot.valueAt(0.95));
+        assertEquals(20, snapshot.valueAt(1.0));
+        assertEquals(1, snapshot.valueAt(0.0));
+    }
+
+    @Test
+    void emptySnapshotReportsZero() {
+        ConcurrentHistogram.Snapshot snapshot = new ConcurrentHistogram(1000).snapshot();
+        assertEquals(0, snapshot.valueAt(0.99));
+        assertEquals(0.0, snapshot.getMean());
+    }
+
+    // 百分位按桶的上界报告，不低估，且相对误差不超过1/32
+    @Test
+    void percentilesStayWithinBucketError() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(60_000_000L);
+        Random random = new Random(7);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // 对数分布，覆盖多个数量级
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(50_000_000L));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        ConcurrentHistogram.Snapshot snapshot = histogram.snapshot();
+        for (double quantile : new double[]{0.1, 0.5, 0.9, 0.99, 0.999}) {
+            long exact = values[(int) Math.ceil(quantile * values.length) - 1];
+            long reported = snapshot.valueAt(quantile);
+            assertTrue(reported >= exact, quantile + ": " + reported + " < " + exact);
+            assertTrue(reported <= exact + exact / 32, quantile + ": " + reported + " vs " + exact);
+        }
+        assertEquals(values[values.length - 1], snapshot.getMax());
+        assertEquals(values[values.length - 1], snapshot.valueAt(1.0));
+    }
+
+    @Test
+    void clampsValuesOutsideTrackableRange() {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(1000);
+        histogram.record(-5);
+        histogram.record(5000);
+
+        ConcurrentHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.valueAt(0.5));
+        assertEquals(1000, snapshot.valueAt(1.0));
+        assertEquals(1000, snapshot.getSum());
+    }
+
+    @Test
+    void concurrentRecordsAreNotLost() throws Exception {
+        ConcurrentHistogram histogram = new ConcurrentHistogram(1_000_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int value = 1; value <= 10_000; value++) {
+                        histogram.record(value);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ConcurrentHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(80_000, snapshot.getCount());
+        assertEquals(8L * 10_000 * 10_001 / 2, snapshot.getSum());
+        long median = snapshot.valueAt(0.5);
+        assertTrue(median >= 5000 && median <= 5000 + 5000 / 32, "median " + median);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExportWriterTests {
+
+    private static final Map<String, Function<String, Object>> COLUMNS = Map.of("value", row -> row);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void jsonListHasApiResponseShape() throws IOException {
+        JsonNode body = send(out -> writeRows(out, List.of("a", "b"), false));
+
+        assertTrue(body.get("success").asBoolean());
+        assertEquals("操作成功", body.get("message").asText());
+        assertEquals(2, body.get("data").size());
+        assertEquals("b", body.get("data").get(1).asText());
+    }
+
+    @Test
+    void failureMidStreamEndsDocumentWithFailedResult() throws IOException {
+        JsonNode body = send(out -> writeRows(out, List.of("a", "b"), true));
+
+        assertFalse(body.get("success").asBoolean());
+        assertEquals(2, body.get("data").size());
+    }
+
+    @Test
+    void failureBeforeFirstRowWritesFailedResult() throws IOException {
+        JsonNode body = send(out -> {
+            throw new IllegalStateException("游标打开失败");
+        });
+
+        assertFalse(body.get("success").asBoolean());
+        assertTrue(body.get("data").isNull());
+    }
+
+    // 与服务层导出相同：写入器在 try-with-resources 中关闭，读取失败的异常向外抛出
+    private void writeRows(OutputStream out, List<String> rows, boolean fail) throws IOException {
+        try (ExportWriter<String> writer = ExportWriter.of(ExportWriter.JSON, out, COLUMNS, objectMapper)) {
+            for (String row : rows) {
+                writer.write(row);
+            }
+            if (fail) {
+                throw new IllegalStateException("游标读取失败");
+            }
+        }
+    }
+
+    private JsonNode send(StreamingResponseBody body) throws IOException {
+        ResponseEntity<StreamingResponseBody> response = ExportWriter.response("rows", ExportWriter.JSON, body);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.demo.util;
+
+import com.example.demo.dto.StoredFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileResponsesTests {
+
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    // HTTP日期精确到秒，取整秒便于构造 If-Range 日期
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private StoredFile file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path path = Files.write(directory.resolve("file.txt"), CONTENT);
+        file = new StoredFile("file.txt", path, CONTENT.length, LAST_MODIFIED, MediaType.TEXT_PLAIN);
+    }
+
+    @Test
+    void returnsFullContentWithoutRange() throws IOException {
+        MockHttpServletResponse response = send(request());
+
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(file.toETag(), response.getHeader(HttpHeaders.ETAG));
+        assertEquals(CONTENT.length, response.getContentLength());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void returnsPartialContentForSingleRange() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(4, response.getContentLength());
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    void returnsPartialContentForSuffixAndOpenRanges() throws IOException {
+        MockHttpServletRequest suffix = request();
+        suffix.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        MockHttpServletResponse suffixResponse = send(suffix);
+        assertEquals(206, suffixResponse.getStatus());
+        assertEquals("bytes 7-9/10", suffixResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("789", suffixResponse.getContentAsString());
+
+        // 结束位置超出文件长度时截断到最后一个字节
+        MockHttpServletRequest open = request();
+        open.addHeader(HttpHeaders.RANGE, "bytes=8-100");
+        MockHttpServletResponse openResponse = send(open);
+        assertEquals(206, openResponse.getStatus());
+        assertEquals("bytes 8-9/10", openResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("89", openResponse.getContentAsString());
+    }
+
+    @Test
+    void returnsFullContentForMultipleRanges() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,4-5");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void rejectsRangeBeyondEndOfFile() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-20");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void rejectsMalformedRange() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=abc");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void honoursRangeWhenIfRangeMatches() throws IOException {
+        MockHttpServletRequest byETag = request();
+        byETag.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        byETag.addHeader(HttpHeaders.IF_RANGE, file.toETag());
+        MockHttpServletResponse etagResponse = send(byETag);
+        assertEquals(206, etagResponse.getStatus());
+        assertEquals("012", etagResponse.getContentAsString());
+
+        MockHttpServletRequest byDate = request();
+        byDate.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        byDate.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED));
+        MockHttpServletResponse dateResponse = send(byDate);
+        assertEquals(206, dateResponse.getStatus());
+        assertEquals("012", dateResponse.getContentAsString());
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeDoesNotMatch() throws IOException {
+        MockHttpServletRequest byETag = request();
+        byETag.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        byETag.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+        MockHttpServletResponse etagResponse = send(byETag);
+        assertEquals(200, etagResponse.getStatus());
+        assertNull(etagResponse.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(CONTENT, etagResponse.getContentAsByteArray());
+
+        MockHttpServletRequest byDate = request();
+        byDate.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        byDate.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED - 60_000));
+        MockHttpServletResponse dateResponse = send(byDate);
+        assertEquals(200, dateResponse.getStatus());
+        assertArrayEquals(CONTENT, dateResponse.getContentAsByteArray());
+
+        // 弱校验值不能用于 If-Range
+        MockHttpServletRequest weak = request();
+        weak.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+        weak.addHeader(HttpHeaders.IF_RANGE, "W/" + file.toETag());
+        assertEquals(200, send(weak).getStatus());
+    }
+
+    @Test
+    void returnsNotModifiedBeforeEvaluatingRange() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, file.toETag());
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-2");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void writesRangeFromCachedBody() throws IOException {
+        MockHttpServletRequest request = request();
+        request.addHeader(HttpHeaders.RANGE, "bytes=3-4");
+        byte[] cached = "abcdefghij".getBytes(StandardCharsets.US_ASCII);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileResponses.send(request, response, file, CacheControl.noCache(), (start, end, out) -> {
+            out.write(Arrays.copyOfRange(cached, (int) start, (int) end + 1));
+            return true;
+        });
+
+        assertEquals(206, response.getStatus());
+        assertEquals("de", response.getContentAsString());
+    }
+
+    @Test
+    void writesHeadersOnlyForHead() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/api/files/file.txt");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+
+        MockHttpServletResponse response = send(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(4, response.getContentLength());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void delegatesLargeRangeToSendfile() throws IOException {
+        byte[] large = new byte[64 * 1024];
+        Path path = Files.write(directory.resolve("large.bin"), large);
+        StoredFile largeFile = new StoredFile("large.bin", path, large.length, LAST_MODIFIED,
+                MediaType.APPLICATION_OCTET_STREAM);
+        MockHttpServletRequest request = request();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=1024-");
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileResponses.send(request, response, largeFile, CacheControl.noCache());
+
+        assertEquals(206, response.getStatus());
+        assertEquals(path.toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(1024L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals((long) large.length, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/files/file.txt");
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FileResponses.send(request, response, file, CacheControl.noCache());
+        return response;
+    }
+
+    private static String httpDate(long millis) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setDate(HttpHeaders.DATE, millis);
+        return headers.getFirst(HttpHeaders.DATE);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FrequencyCacheTests {
+
+    @Test
+    void keepsEntriesWithinCapacity() {
+        FrequencyCache<String, Integer> cache = new FrequencyCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("a", 3);
+
+        assertEquals(3, cache.get("a"));
+        assertEquals(2, cache.get("b"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void rejectsCandidateNotHotterThanVictim() {
+        FrequencyCache<String, Integer> cache = new FrequencyCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.get("b");
+
+        cache.put("c", 3);
+
+        assertEquals(1L, cache.stats().get("rejections"));
+        assertEquals(1, cache.get("a"));
+        assertEquals(2, cache.get("b"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedForHotterCandidate() {
+        FrequencyCache<String, Integer> cache = new FrequencyCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("b");
+        // 未命中也计入频率，c 比最久未使用的 a 更热
+        cache.get("c");
+        cache.get("c");
+
+        cache.put("c", 3);
+
+        assertEquals(1L, cache.stats().get("evictions"));
+        assertEquals(3, cache.get("c"));
+        assertEquals(2, cache.get("b"));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void expiresEntriesAfterWrite() throws InterruptedException {
+        FrequencyCache<String, Integer> cache = new FrequencyCache<>(10, Duration.ofMillis(20));
+        cache.put("a", 1);
+        assertEquals(1, cache.get("a"));
+
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+        assertEquals(1L, cache.stats().get("expirations"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void replacesExpiredEldestWithoutAdmissionCheck() throws InterruptedException {
+        FrequencyCache<String, Integer> cache = new FrequencyCache<>(1, Duration.ofMillis(20));
+        cache.put("hot", 1);
+        for (int i = 0; i < 5; i++) {
+            cache.get("hot");
+        }
+
+        Thread.sleep(40);
+        cache.put("cold", 2);
+
+        assertEquals(0L, cache.stats().get("rejections"));
+        assertEquals(1L, cache.stats().get("expirations"));
+        assertEquals(2, cache.get("cold"));
+    }
+
+    @Test
+    void invalidatesEntries() {
+        FrequencyCache<String, Integer> cache = new FrequencyCache<>(10);
+        cache.put("a", 1);
+        cache.put("b", 2);
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.get("b"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrequencySketchTests {
+
+    @Test
+    void countsIncrementsUpToMaximum() {
+        FrequencySketch sketch = new FrequencySketch(1000);
+        assertEquals(0, sketch.frequency("a"));
+
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("a");
+        }
+        assertEquals(5, sketch.frequency("a"));
+
+        for (int i = 0; i < 50; i++) {
+            sketch.increment("a");
+        }
+        assertEquals(15, sketch.frequency("a"));
+    }
+
+    // Count-Min 只会高估，不会低估
+    @Test
+    void neverUnderestimates() {
+        FrequencySketch sketch = new FrequencySketch(512);
+        Map<Integer, Integer> counts = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            int key = random.nextInt(500);
+            sketch.increment(key);
+            counts.merge(key, 1, Integer::sum);
+        }
+
+        counts.forEach((key, count) -> assertTrue(sketch.frequency(key) >= Math.min(count, 15),
+                () -> "key " + key + " count " + count + " estimate " + sketch.frequency(key)));
+    }
+
+    @Test
+    void halvesCountsAfterSamplePeriod() {
+        // 样本数为容量的10倍
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 12; i++) {
+            sketch.increment("hot");
+        }
+        assertEquals(12, sketch.frequency("hot"));
+
+        for (int i = 0; i < 160; i++) {
+            sketch.increment("other-" + i);
+        }
+
+        int aged = sketch.frequency("hot");
+        assertTrue(aged <= 6 + 1, "aged frequency " + aged);
+        assertTrue(aged >= 6, "aged frequency " + aged);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongExpiryTableTests {
+
+    @Test
+    void returnsStoredValuesAndZeroForMissingKeys() {
+        LongExpiryTable table = new LongExpiryTable(4);
+        table.put(1, 10, 100);
+        table.put(-5, 20, 100);
+
+        assertEquals(10, table.get(1));
+        assertEquals(20, table.get(-5));
+        assertEquals(0, table.get(2));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void keepsLargerValueAndLaterExpiryOnRepeatedPut() {
+        LongExpiryTable table = new LongExpiryTable(16);
+        table.put(7, 50, 200);
+        table.put(7, 30, 100);
+
+        assertEquals(50, table.get(7));
+        assertEquals(1, table.size());
+        // 过期时间取较晚的200，100时不会被清理
+        assertEquals(0, table.purge(100));
+        assertEquals(50, table.get(7));
+    }
+
+    @Test
+    void rejectsZeroKey() {
+        LongExpiryTable table = new LongExpiryTable(16);
+        assertThrows(IllegalArgumentException.class, () -> table.put(0, 1, 1));
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        LongExpiryTable table = new LongExpiryTable(16);
+        for (long key = 1; key <= 10_000; key++) {
+            table.put(key, key * 2, Long.MAX_VALUE);
+        }
+
+        assertEquals(10_000, table.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key * 2, table.get(key));
+        }
+    }
+
+    @Test
+    void purgeRemovesExpiredSlotsOnly() {
+        LongExpiryTable table = new LongExpiryTable(16);
+        for (long key = 1; key <= 1000; key++) {
+            table.put(key, key, key <= 900 ? 100 : 300);
+        }
+
+        assertEquals(900, table.purge(100));
+        assertEquals(100, table.size());
+        for (long key = 1; key <= 900; key++) {
+            assertEquals(0, table.get(key));
+        }
+        for (long key = 901; key <= 1000; key++) {
+            assertEquals(key, table.get(key));
+        }
+
+        // 清理后的表仍可正常写入，已清理的键可以重新写入
+        table.put(5, 55, 300);
+        assertEquals(55, table.get(5));
+        assertEquals(0, table.purge(299));
+        assertEquals(101, table.size());
+        assertEquals(101, table.purge(300));
+        assertEquals(0, table.size());
+    }
+
+    // 写线程不断插入触发扩容，读线程读取已发布的键，任何时刻都不能读到缺失或错误的值
+    @Test
+    void readersSeeAllPublishedKeysDuringResize() throws Exception {
+        LongExpiryTable table = new LongExpiryTable(16);
+        int keys = 200_000;
+        AtomicLong published = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> {
+                for (long key = 1; key <= keys; key++) {
+                    table.put(key, key, Long.MAX_VALUE);
+                    published.set(key);
+                    // 间隔清理，清理同样会重建并替换表
+                    if (key % 50_000 == 0) {
+                        table.purge(0);
+                    }
+                }
+                return null;
+            }));
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (published.get() < keys) {
+                        long upper = published.get();
+                        if (upper == 0) {
+                            continue;
+                        }
+                        long key = random.nextLong(upper) + 1;
+                        assertEquals(key, table.get(key), "key " + key);
+                        reads.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(keys, table.size());
+        assertTrue(reads.get() > 0);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapByteCacheTests {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackLoadedContentAndRanges() throws IOException {
+        OffHeapByteCache cache = new OffHeapByteCache(8 * BLOCK_SIZE, BLOCK_SIZE, 4 * BLOCK_SIZE);
+        byte[] content = new byte[2 * BLOCK_SIZE + 100];
+        ThreadLocalRandom.current().nextBytes(content);
+        Path file = Files.write(directory.resolve("a"), content);
+
+        OffHeapByteCache.Entry loaded = cache.load("a", file, content.length);
+        assertNotNull(loaded);
+        assertArrayEquals(content, read(cache, loaded, 0, content.length - 1));
+        cache.release(loaded);
+
+        // 跨块的范围
+        OffHeapByteCache.Entry entry = cache.acquire("a");
+        assertSame(loaded, entry);
+        assertArrayEquals(Arrays.copyOfRange(content, BLOCK_SIZE - 10, BLOCK_SIZE + 20),
+                read(cache, entry, BLOCK_SIZE - 10, BLOCK_SIZE + 19));
+        cache.release(entry);
+    }
+
+    @Test
+    void skipsFilesLargerThanEntryLimit() throws IOException {
+        OffHeapByteCache cache = new OffHeapByteCache(8 * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+        Path file = Files.write(directory.resolve("large"), new byte[BLOCK_SIZE + 1]);
+
+        assertNull(cache.load("large", file, BLOCK_SIZE + 1));
+        assertEquals(0, cache.stats().get("entries"));
+    }
+
+    @Test
+    void evictedEntryKeepsBlocksUntilLastReaderReleases() throws IOException {
+        OffHeapByteCache cache = new OffHeapByteCache(2 * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+        Path a = write("a", (byte) 'a');
+        Path b = write("b", (byte) 'b');
+        Path c = write("c", (byte) 'c');
+
+        OffHeapByteCache.Entry held = cache.load("a", a, BLOCK_SIZE);
+        cache.release(cache.load("b", b, BLOCK_SIZE));
+        heat(cache, "c", 3);
+
+        // a 仍被读取，淘汰后内存块不能交给 c 使用
+        OffHeapByteCache.Entry loaded = cache.load("c", c, BLOCK_SIZE);
+        assertNotNull(loaded);
+        cache.release(loaded);
+        assertNull(cache.acquire("a"));
+        assertEquals(0L, cache.stats().get("freeBytes"));
+        assertArrayEquals(filled((byte) 'a'), read(cache, held, 0, BLOCK_SIZE - 1));
+
+        cache.release(held);
+        assertEquals((long) BLOCK_SIZE, cache.stats().get("freeBytes"));
+        assertEquals(2L, cache.stats().get("evictions"));
+    }
+
+    @Test
+    void invalidatedEntryIsFreedOnRelease() throws IOException {
+        OffHeapByteCache cache = new OffHeapByteCache(BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+        OffHeapByteCache.Entry held = cache.load("a", write("a", (byte) 'a'), BLOCK_SIZE);
+
+        cache.invalidate("a");
+        assertEquals(0L, cache.stats().get("freeBytes"));
+        assertEquals(0L, cache.stats().get("usedBytes"));
+
+        cache.release(held);
+        assertEquals((long) BLOCK_SIZE, cache.stats().get("freeBytes"));
+    }
+
+    @Test
+    void rejectsCandidateColderThanVictim() throws IOException {
+        OffHeapByteCache cache = new OffHeapByteCache(BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+        cache.release(cache.load("hot", write("hot", (byte) 'h'), BLOCK_SIZE));
+        heat(cache, "hot", 5);
+
+        assertNull(cache.load("cold", write("cold", (byte) 'c'), BLOCK_SIZE));
+        assertEquals(1L, cache.stats().get("rejections"));
+
+        OffHeapByteCache.Entry hot = cache.acquire("hot");
+        assertNotNull(hot);
+        cache.release(hot);
+    }
+
+    @Test
+    void admitsCandidateHotterThanVictim() throws IOException {
+        OffHeapByteCache cache = new OffHeapByteCache(BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+        cache.release(cache.load("old", write("old", (byte) 'o'), BLOCK_SIZE));
+        heat(cache, "new", 3);
+
+        OffHeapByteCache.Entry loaded = cache.load("new", write("new", (byte) 'n'), BLOCK_SIZE);
+        assertNotNull(loaded);
+        cache.release(loaded);
+        assertNull(cache.acquire("old"));
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+
+    // 读取与淘汰、失效并发：读取方持有引用期间内容不能被其他条目覆盖，结束后所有内存块都要归还
+    @Test
+    void readersNeverSeeBlocksReusedByEviction() throws Exception {
+        int keys = 16;
+        OffHeapByteCache cache = new OffHeapByteCache(4 * BLOCK_SIZE, BLOCK_SIZE, BLOCK_SIZE);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < keys; i++) {
+            files.add(write("k" + i, (byte) i));
+        }
+
+        AtomicLong reads = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int n = 0; n < 20_000; n++) {
+                        int key = random.nextInt(keys);
+                        if (random.nextInt(50) == 0) {
+                            cache.invalidate("k" + key);
+                            continue;
+                        }
+                        OffHeapByteCache.Entry entry = cache.acquire("k" + key);
+                        if (entry == null) {
+                            entry = cache.load("k" + key, files.get(key), BLOCK_SIZE);
+                        }
+                        if (entry == null) {
+                            continue;
+                        }
+                        try {
+                            // 读取期间让出CPU，增加与淘汰交错的机会
+                            Thread.yield();
+                            assertArrayEquals(filled((byte) key), read(cache, entry, 0, BLOCK_SIZE - 1));
+                            reads.incrementAndGet();
+                        } finally {
+                            cache.release(entry);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(reads.get() > 0);
+        int entries = (Integer) cache.stats().get("entries");
+        assertEquals((long) (4 - entries) * BLOCK_SIZE, cache.stats().get("freeBytes"));
+        assertEquals((long) entries * BLOCK_SIZE, cache.stats().get("usedBytes"));
+    }
+
+    // 每次未命中都会计入频率草图
+    private static void heat(OffHeapByteCache cache, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            OffHeapByteCache.Entry entry = cache.acquire(key);
+            if (entry != null) {
+                cache.release(entry);
+            }
+        }
+    }
+
+    private Path write(String name, byte value) throws IOException {
+        return Files.write(directory.resolve(name), filled(value));
+    }
+
+    private static byte[] filled(byte value) {
+        byte[] content = new byte[BLOCK_SIZE];
+        Arrays.fill(content, value);
+        return content;
+    }
+
+    private static byte[] read(OffHeapByteCache cache, OffHeapByteCache.Entry entry, long start, long end)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.write(entry, start, end, Channels.newChannel(out));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTests {
+
+    @Test
+    void countsExactlyWhileUnderCapacity() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        sketch.offer(1, 3);
+        sketch.offer(2, 1);
+        sketch.offer(1, 2);
+
+        List<SpaceSaving.Counter> top = sketch.top(10);
+        assertEquals(2, top.size());
+        assertEquals(1, top.get(0).getKey());
+        assertEquals(5, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+        assertEquals(6, sketch.getTotal());
+    }
+
+    @Test
+    void newKeyInheritsMinimumCountAsError() {
+        SpaceSaving sketch = new SpaceSaving(2);
+        sketch.offer(1, 5);
+        sketch.offer(2, 3);
+        sketch.offer(3, 1);
+
+        assertEquals(2, sketch.size());
+        List<SpaceSaving.Counter> top = sketch.top(2);
+        assertEquals(1, top.get(0).getKey());
+        assertEquals(3, top.get(1).getKey());
+        assertEquals(4, top.get(1).getCount());
+        assertEquals(3, top.get(1).getError());
+    }
+
+    // 偏斜分布下：计数不低估、偏大量不超过 error，频率超过 总数/capacity 的键都被保留
+    @Test
+    void boundsErrorOnSkewedStream() {
+        int capacity = 50;
+        SpaceSaving sketch = new SpaceSaving(capacity);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            // 约一半流量集中在前10个键
+            long key = random.nextBoolean() ? random.nextInt(10) + 1 : random.nextInt(5000) + 1;
+            sketch.offer(key, 1);
+            exact.merge(key, 1L, Long::sum);
+        }
+
+        long total = sketch.getTotal();
+        assertEquals(100_000, total);
+        Map<Long, SpaceSaving.Counter> kept = new HashMap<>();
+        for (SpaceSaving.Counter counter : sketch.top(capacity)) {
+            kept.put(counter.getKey(), counter);
+            long truth = exact.get(counter.getKey());
+            assertTrue(counter.getCount() >= truth, "key " + counter.getKey());
+            assertTrue(counter.getCount() - counter.getError() <= truth, "key " + counter.getKey());
+            assertTrue(counter.getError() <= total / capacity, "key " + counter.getKey());
+        }
+        exact.forEach((key, count) -> {
+            if (count > total / capacity) {
+                assertTrue(kept.containsKey(key), "frequent key " + key + " dropped");
+            }
+        });
+
+        // 前10个即为热点键
+        List<SpaceSaving.Counter> top = sketch.top(10);
+        for (SpaceSaving.Counter counter : top) {
+            assertTrue(counter.getKey() <= 10, "unexpected key " + counter.getKey());
+        }
+    }
+
+    @Test
+    void addToMergesCounts() {
+        SpaceSaving first = new SpaceSaving(10);
+        SpaceSaving second = new SpaceSaving(10);
+        first.offer(1, 2);
+        second.offer(1, 3);
+        second.offer(2, 1);
+
+        Map<Long, Long> merged = new HashMap<>();
+        first.addTo(merged);
+        second.addTo(merged);
+
+        assertEquals(Map.of(1L, 5L, 2L, 1L), merged);
+    }
+}